@@ -0,0 +1,55 @@
+import java.util.Random;
+
+// Synthetic resumes (fixed seed, so runs are comparable) and canned AI responses in the formats the
+// prompts ask for
+final class BenchmarkCorpus {
+
+    private static final String[] SKILLS = {"Java", "Python", "SQL", "Spring", "Docker", "Kubernetes", "AWS", "React",
+            "Terraform", "Kafka", "PostgreSQL", "Git", "CI/CD", "Agile", "Scrum", "REST APIs", "Microservices", "Linux"};
+    private static final String[] VERBS = {"Led", "Built", "Designed", "Migrated", "Automated", "Reduced", "Improved", "Delivered"};
+    private static final String[] OBJECTS = {"a payments platform", "the data pipeline", "customer-facing APIs",
+            "the deployment process", "an internal analytics tool", "search relevance", "on-call tooling"};
+
+    static final String CANNED_ATS_RESPONSE = "ATS COMPATIBILITY SCORE: 78\n" +
+            "ATS COMPATIBILITY DETAILS: Strong keyword coverage for backend roles; contact details and dates are easy to parse.\n" +
+            "FORMAT: Single column with clear headings. Bullets are concise. No tables or images.\n" +
+            "SECTIONS: Summary, Experience, Education and Skills are present. Certifications are missing.\n" +
+            "SKILLS: Java, Spring, SQL, Docker, Kubernetes, AWS, Kafka\n" +
+            "STYLE: Professional and action-oriented, with quantified results in most bullets.\n" +
+            "ATS Keyword Matches: Technical Skills - present; Soft Skills - partial; Tools - present; Education - present";
+    static final String CANNED_GRAMMAR_RESPONSE = "1. \"Responsible for leading of the team\" - use \"Led the team\".\n" +
+            "2. Inconsistent tense in the second role: use past tense throughout.\n" +
+            "3. \"Kubernetes\" is misspelled once as \"Kubernets\".";
+    static final String CANNED_PROBABILITY_RESPONSE = "Interview Probability: 64%";
+
+    private BenchmarkCorpus() {
+    }
+
+    static String syntheticResume(Random random, int index) {
+        StringBuilder text = new StringBuilder();
+        text.append("Candidate ").append(index).append('\n');
+        text.append("candidate").append(index).append("@example.com | (555) 010-").append(String.format("%04d", index % 10_000)).append("\n\n");
+        text.append("SUMMARY\n");
+        text.append("Software engineer with ").append(2 + random.nextInt(15))
+                .append(" years of experience building reliable backend systems and leading small teams.\n\n");
+        text.append("EXPERIENCE\n");
+        int roles = 2 + random.nextInt(4);
+        for (int role = 0; role < roles; role++) {
+            text.append("Senior Engineer, Company ").append((char) ('A' + random.nextInt(26))).append(", ")
+                    .append(2010 + role * 2).append(" - ").append(2012 + role * 2).append('\n');
+            int bullets = 3 + random.nextInt(5);
+            for (int b = 0; b < bullets; b++) {
+                text.append("• ").append(VERBS[random.nextInt(VERBS.length)]).append(' ').append(OBJECTS[random.nextInt(OBJECTS.length)])
+                        .append(" using ").append(SKILLS[random.nextInt(SKILLS.length)]).append(", cutting latency by ")
+                        .append(10 + random.nextInt(80)).append("%\n");
+            }
+        }
+        text.append("\nEDUCATION\nB.Sc. Computer Science, State University, ").append(2005 + random.nextInt(10)).append("\n\n");
+        text.append("SKILLS\n");
+        for (int s = 0, count = 5 + random.nextInt(8); s < count; s++) {
+            text.append(s == 0 ? "" : ", ").append(SKILLS[random.nextInt(SKILLS.length)]);
+        }
+        text.append('\n');
+        return text.toString();
+    }
+}
@@ -0,0 +1,122 @@
+import resumeanalyzer.benchmarks.Workload;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// The benchmarked operations, written against the application's package-private classes
+public class BenchmarkWorkload implements Workload {
+
+    private final List<File> pdfs = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final PdfTextExtractor extractor = new PdfTextExtractor(20_000, 16L * 1024 * 1024, 1);
+    private final PromptCompactor compactor = PromptCompactor.fromSystemProperties();
+    private final AtsKeywordScorer scorer = new AtsKeywordScorer(AtsKeywordScorer.defaultDictionary());
+    private File exportFile;
+    private StubCohereServer stub;
+    private ResumeAnalysisEngine engine;
+
+    @Override
+    public void generateCorpus(File dir, int resumes) throws Exception {
+        Random random = new Random(42);
+        File corpusDir = new File(dir, "corpus");
+        corpusDir.mkdirs();
+        for (int i = 0; i < resumes; i++) {
+            String text = BenchmarkCorpus.syntheticResume(random, i);
+            File pdf = new File(corpusDir, "resume-" + i + ".pdf");
+            try (PdfReportWriter writer = new PdfReportWriter(pdf)) {
+                writer.writeText(text);
+            }
+            pdfs.add(pdf);
+            texts.add(text);
+        }
+        exportFile = new File(dir, "export.pdf");
+    }
+
+    @Override
+    public int extractPdf(int resume) throws Exception {
+        return extractor.extract(pdfs.get(resume)).length();
+    }
+
+    @Override
+    public int splitSections(int resume) {
+        return ResumeSections.split(texts.get(resume)).size();
+    }
+
+    @Override
+    public int compactPrompt(int resume) {
+        return compactor.compact(texts.get(resume), PromptCompactor.Task.ATS).length();
+    }
+
+    @Override
+    public int scoreLocally(int resume) {
+        return scorer.score(texts.get(resume)).score;
+    }
+
+    @Override
+    public int parseResponse() {
+        return AiResponseParser.parse(BenchmarkCorpus.CANNED_ATS_RESPONSE).getAtsScore();
+    }
+
+    @Override
+    public int exportPdf(int resume) throws Exception {
+        try (PdfReportWriter writer = new PdfReportWriter(exportFile)) {
+            writer.writeSection("ATS Analysis:", BenchmarkCorpus.CANNED_ATS_RESPONSE);
+            writer.writeSection("Grammar and Language Quality:", BenchmarkCorpus.CANNED_GRAMMAR_RESPONSE);
+            writer.writeSection("Resume:", texts.get(resume));
+            return writer.getPageCount();
+        }
+    }
+
+    // No rate limits, no retries and nothing kept on disk, so every comparison does the full work
+    @Override
+    public void startEngine(File indexFile, int stubLatencyMillis) throws Exception {
+        stub = new StubCohereServer(stubLatencyMillis);
+        CohereClient client = new CohereClient("benchmark", stub.baseUrl(), Duration.ofSeconds(5), Duration.ofSeconds(30));
+        Map<PromptCompactor.Task, Integer> budgets = new EnumMap<>(PromptCompactor.Task.class);
+        for (PromptCompactor.Task task : PromptCompactor.Task.values()) {
+            budgets.put(task, 1000);
+        }
+        ResultStore noStore = ResultStore.open(null);
+        engine = new ResumeAnalysisEngine(
+                client,
+                new RequestScheduler(1_000_000, 1_000_000_000, 0, 0, 0, Integer.MAX_VALUE, 0),
+                new ResponseCache(10_000, Long.MAX_VALUE / 2, null),
+                new PromptCompactor(budgets),
+                new ChatSessions(1, 6, 300, true, noStore),
+                new PdfTextExtractor(20_000, 16L * 1024 * 1024, Runtime.getRuntime().availableProcessors()),
+                new AtsKeywordScorer(AtsKeywordScorer.defaultDictionary()),
+                new ResumeVectorStore(1024),
+                noStore,
+                indexFile, 16, pdfs.size());
+        engine.ingest(pdfs, document -> {
+        }, (file, e) -> {
+            throw new IllegalStateException("Could not read " + file, e);
+        });
+    }
+
+    @Override
+    public void forgetResults() {
+        engine.forgetResults();
+    }
+
+    @Override
+    public int compareAll() throws Exception {
+        return engine.compare(pdfs, pdfs.size(), new ResumeAnalysisEngine.ComparisonListener() {
+        }).scores.size();
+    }
+
+    @Override
+    public void close() {
+        if (engine != null) {
+            engine.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+}
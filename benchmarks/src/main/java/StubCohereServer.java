@@ -0,0 +1,53 @@
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Answers /generate with the canned response for whichever prompt it was sent, after latencyMillis
+final class StubCohereServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    StubCohereServer(int latencyMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext(CohereClient.GENERATE_PATH, exchange -> {
+            try {
+                String prompt = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).optString("prompt");
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                String text = prompt.startsWith("Analyze the following resume for grammar") ? BenchmarkCorpus.CANNED_GRAMMAR_RESPONSE
+                        : prompt.startsWith("Estimate the probability") ? BenchmarkCorpus.CANNED_PROBABILITY_RESPONSE
+                        : BenchmarkCorpus.CANNED_ATS_RESPONSE.replace("78", String.valueOf(40 + Math.floorMod(prompt.hashCode(), 60)));
+                JSONObject response = new JSONObject().put("generations", new JSONArray().put(new JSONObject().put("text", text)));
+                byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,157 @@
+package resumeanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of the hot paths (PDF extraction, section parsing, prompt compaction, local ATS scoring,
+// response parsing, PDF export) and of a whole comparison against a local stub of the AI API, on a
+// generated corpus of resumes.
+//
+//   mvn -pl benchmarks -am package && java -jar benchmarks/target/benchmarks.jar [JMH options]
+//
+// Runs with the gc profiler and writes jmh-result.json unless -prof or -rf is given.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResumeBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Corpus {
+        @Param("50")
+        int corpusResumes;
+
+        Workload workload;
+        File dir;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dir = Files.createTempDirectory("resume-bench").toFile();
+            workload = Workload.create();
+            workload.generateCorpus(dir, corpusResumes);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.close();
+            deleteRecursively(dir);
+        }
+
+        int next() {
+            return next++ % corpusResumes;
+        }
+    }
+
+    // One engine per trial; each invocation starts from an empty ranking and response cache so every
+    // resume is scored and sent to the stub again
+    @State(Scope.Benchmark)
+    public static class Comparison {
+        @Param("50")
+        int comparedResumes;
+
+        @Param("20")
+        int stubLatencyMillis;
+
+        Workload workload;
+        File dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dir = Files.createTempDirectory("resume-bench").toFile();
+            workload = Workload.create();
+            workload.generateCorpus(dir, comparedResumes);
+            workload.startEngine(new File(dir, "index.bin"), stubLatencyMillis);
+        }
+
+        @Setup(Level.Invocation)
+        public void forgetResults() {
+            workload.forgetResults();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.close();
+            deleteRecursively(dir);
+        }
+    }
+
+    @Benchmark
+    public int pdfExtract(Corpus corpus) throws Exception {
+        return corpus.workload.extractPdf(corpus.next());
+    }
+
+    @Benchmark
+    public int sectionsSplit(Corpus corpus) {
+        return corpus.workload.splitSections(corpus.next());
+    }
+
+    @Benchmark
+    public int promptCompact(Corpus corpus) {
+        return corpus.workload.compactPrompt(corpus.next());
+    }
+
+    @Benchmark
+    public int atsLocal(Corpus corpus) {
+        return corpus.workload.scoreLocally(corpus.next());
+    }
+
+    @Benchmark
+    public int responseParse(Corpus corpus) {
+        return corpus.workload.parseResponse();
+    }
+
+    @Benchmark
+    public int pdfExport(Corpus corpus) throws Exception {
+        return corpus.workload.exportPdf(corpus.next());
+    }
+
+    @Benchmark
+    public int compareEndToEnd(Comparison comparison) throws Exception {
+        return comparison.workload.compareAll();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(new CommandLineOptions(args));
+        if (!Arrays.asList(args).contains("-prof")) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!Arrays.asList(args).contains("-rf")) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,39 @@
+package resumeanalyzer.benchmarks;
+
+import java.io.File;
+
+// The operations the benchmarks time. The application's classes are package-private in the default
+// package, which JMH benchmark classes cannot be in, so BenchmarkWorkload (default package, next to
+// them) implements this and the benchmarks load it by name.
+public interface Workload extends AutoCloseable {
+
+    static Workload create() throws ReflectiveOperationException {
+        return (Workload) Class.forName("BenchmarkWorkload").getDeclaredConstructor().newInstance();
+    }
+
+    // Writes the synthetic corpus of resume PDFs to dir
+    void generateCorpus(File dir, int resumes) throws Exception;
+
+    int extractPdf(int resume) throws Exception;
+
+    int splitSections(int resume);
+
+    int compactPrompt(int resume);
+
+    int scoreLocally(int resume);
+
+    int parseResponse();
+
+    int exportPdf(int resume) throws Exception;
+
+    // One engine talking to a local stub of the AI API that answers after stubLatencyMillis
+    void startEngine(File indexFile, int stubLatencyMillis) throws Exception;
+
+    void forgetResults();
+
+    // Compares the whole corpus and returns the number of resumes ranked
+    int compareAll() throws Exception;
+
+    @Override
+    void close();
+}
@@ -5,22 +5,15 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import java.awt.*;
 import java.io.*;
-import java.net.*;
 import java.util.*;
 import java.util.List;
 import java.util.Map.Entry;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.json.JSONObject;
-import org.json.JSONArray;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.nio.charset.StandardCharsets;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.geom.Arc2D;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 
 public class AIResumeAnalyzer {
 
@@ -30,22 +23,43 @@ public class AIResumeAnalyzer {
     private JTextField chatbotInput;
     private File selectedFile;
     private List<File> uploadedResumes = new ArrayList<>();
-    private Map<File, String> resumeTexts = new HashMap<>();
-    private Map<File, String> analysisResults = new HashMap<>();
-    private Map<File, Integer> atsScores = new HashMap<>();
+    // All non-UI work; the same engine backs the command line (see ResumeAnalyzerCli)
+    private final ResumeAnalysisEngine engine = ResumeAnalysisEngine.fromSystemProperties();
+    private Map<File, String> analysisResults = new LinkedHashMap<>();
+    private Map<File, Integer> atsScores = new LinkedHashMap<>();
     private List<Entry<File, Integer>> rankedResumes = new ArrayList<>();
+    private ResumeAnalysisEngine.Comparison lastComparison;
+    private final ComparisonReportExporter reportExporter = ComparisonReportExporter.fromSystemProperties();
     private int numberOfResumesToUpload = 0;
     private int resumesUploadedCount = 0;
     private JButton compareButton;
+    private JButton searchButton;
+    private JButton matchJobButton;
     private JButton uploadButton;
     private JButton analyzeButton;
     private JButton downloadAnalysisButton;
+    private JButton exportComparisonButton;
     private JButton sendButton;
+    private JButton cancelButton;
+    private JButton metricsButton;
+    private JDialog metricsDialog;
+    private JCheckBox combinedAnalysisCheckBox;
+    private JProgressBar taskProgressBar;
     private JTextArea grammarAndLanguageQualityText;
-
-    private static final String COHERE_API_KEY = "your-cohere-ai-api-key";
-    private static final String COHERE_API_URL = "https://api.cohere.ai/v1/generate";
-    private static final String COHERE_CHAT_URL = "https://api.cohere.ai/v1/chat";
+    private final List<BackgroundTask> runningTasks = new ArrayList<>();
+    // Comparison results: one table row per resume, details only for the selected row
+    private JTabbedPane analysisTabs;
+    private final ComparisonTableModel comparisonModel = new ComparisonTableModel();
+    private JTable comparisonTable;
+    private JTextArea comparisonDetails;
+    private javax.swing.Timer probabilityDelay;
+    private final Set<File> probabilityRequested = new HashSet<>();
+
+    private static final int JOB_MATCH_RESULTS = Integer.getInteger("resume.jd.topk", 10);
+    // Analyze and chat show AI output token by token unless -Dcohere.stream=false
+    private static final boolean STREAMING_ENABLED = Boolean.parseBoolean(System.getProperty("cohere.stream", "true"));
+    // Interview probability is fetched for a selected comparison row once the selection settles
+    private static final int PROBABILITY_DELAY_MILLIS = 400;
 
     // Refined Color Palette
     private static final Color PRIMARY_COLOR = new Color(70, 130, 180);
@@ -55,8 +69,14 @@ public class AIResumeAnalyzer {
     private static final Color TEXT_COLOR = new Color(51, 51, 51);
     private static final Font DEFAULT_FONT = new Font("Arial", Font.PLAIN, 14);
     private static final Font RESULT_FONT = new Font("Arial", Font.PLAIN, 16);
+    private static final Metrics.Histogram UI_RENDER = Metrics.histogram("ui.render");
 
     public static void main(String[] args) {
+        Metrics.startDumpFromSystemProperties();
+        // Any arguments mean a headless run, e.g. "analyze --in resumes/ --out results.jsonl"
+        if (args.length > 0) {
+            System.exit(ResumeAnalyzerCli.run(args));
+        }
         SwingUtilities.invokeLater(() -> {
             AIResumeAnalyzer analyzer = new AIResumeAnalyzer();
             analyzer.createAndShowGUI();
@@ -64,6 +84,7 @@ public class AIResumeAnalyzer {
     }
 
     public void createAndShowGUI() {
+        engine.start();
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (UnsupportedLookAndFeelException | ClassNotFoundException | InstantiationException | IllegalAccessException e) {
@@ -84,11 +105,30 @@ public class AIResumeAnalyzer {
         uploadButton = createStyledButton("Upload Resumes (PDF)");
         analyzeButton = createStyledButton("Analyze Resume");
         compareButton = createStyledButton("Compare Resumes");
+        searchButton = createStyledButton("Search Resumes");
+        matchJobButton = createStyledButton("Match Job Description");
         compareButton.setEnabled(false);
+        cancelButton = createStyledButton("Cancel");
+        cancelButton.setEnabled(false);
+        metricsButton = createStyledButton("Metrics");
+        taskProgressBar = new JProgressBar(0, 100);
+        taskProgressBar.setStringPainted(true);
+        taskProgressBar.setString("Idle");
+        taskProgressBar.setFont(DEFAULT_FONT);
+        combinedAnalysisCheckBox = new JCheckBox("Single-call analysis", Boolean.getBoolean("resume.analysis.combined"));
+        combinedAnalysisCheckBox.setFont(DEFAULT_FONT);
+        combinedAnalysisCheckBox.setBackground(BACKGROUND_COLOR);
+        combinedAnalysisCheckBox.setToolTipText("Request ATS score, interview probability and grammar feedback in one AI call");
 
         topPanel.add(uploadButton);
         topPanel.add(analyzeButton);
         topPanel.add(compareButton);
+        topPanel.add(searchButton);
+        topPanel.add(matchJobButton);
+        topPanel.add(combinedAnalysisCheckBox);
+        topPanel.add(cancelButton);
+        topPanel.add(taskProgressBar);
+        topPanel.add(metricsButton);
 
         // --- Center Panel ---
         JPanel centerPanel = new JPanel(new GridLayout(1, 3, 15, 15)); // GridLayout with 3 columns
@@ -106,7 +146,11 @@ public class AIResumeAnalyzer {
         analysisPanel.add(dualScorePanel, BorderLayout.NORTH);
         resumeResultText = createStyledTextArea(RESULT_FONT);
         JScrollPane resumeScrollPane = new JScrollPane(resumeResultText);
-        analysisPanel.add(resumeScrollPane, BorderLayout.CENTER);
+        analysisTabs = new JTabbedPane();
+        analysisTabs.setFont(DEFAULT_FONT);
+        analysisTabs.addTab("Analysis", resumeScrollPane);
+        analysisTabs.addTab("Comparison", createComparisonView());
+        analysisPanel.add(analysisTabs, BorderLayout.CENTER);
         centerPanel.add(analysisPanel);
 
         // Chatbot Panel
@@ -128,6 +172,8 @@ public class AIResumeAnalyzer {
         chatbotInput = createStyledTextField();
         sendButton = createStyledButton("Send");
         downloadAnalysisButton = createStyledButton("Download Analysis (as PDF)");
+        exportComparisonButton = createStyledButton("Export Comparison (PDF, CSV, JSON)");
+        exportComparisonButton.setEnabled(false);
 
         JPanel chatInputPanel = new JPanel(new BorderLayout(10, 0));
         chatInputPanel.setBackground(BACKGROUND_COLOR);
@@ -135,7 +181,11 @@ public class AIResumeAnalyzer {
         chatInputPanel.add(sendButton, BorderLayout.EAST);
 
         bottomPanel.add(chatInputPanel, BorderLayout.NORTH);
-        bottomPanel.add(downloadAnalysisButton, BorderLayout.SOUTH);
+        JPanel downloadPanel = new JPanel(new GridLayout(1, 2, 15, 0));
+        downloadPanel.setBackground(BACKGROUND_COLOR);
+        downloadPanel.add(downloadAnalysisButton);
+        downloadPanel.add(exportComparisonButton);
+        bottomPanel.add(downloadPanel, BorderLayout.SOUTH);
 
         frame.add(topPanel, BorderLayout.NORTH);
         frame.add(centerPanel, BorderLayout.CENTER);
@@ -146,33 +196,88 @@ public class AIResumeAnalyzer {
         // Action Listeners (Modified to update new UI components)
         uploadButton.addActionListener(e -> {
             JFileChooser fileChooser = new JFileChooser();
+            // Several PDFs or whole folders can be picked at once; they are extracted in parallel
+            fileChooser.setMultiSelectionEnabled(true);
+            fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+            fileChooser.setFileFilter(new FileNameExtensionFilter("PDF files (*.pdf)", "pdf"));
             int returnVal = fileChooser.showOpenDialog(frame);
             if (returnVal == JFileChooser.APPROVE_OPTION) {
-                selectedFile = fileChooser.getSelectedFile();
-                uploadedResumes.add(selectedFile);
-                try {
-                    String text = extractTextFromPDF(selectedFile);
-                    resumeTexts.put(selectedFile, text);
-                    resumeResultText.append("Uploaded: " + selectedFile.getName() + "\n");
-                    grammarAndLanguageQualityText.append("Uploaded: " + selectedFile.getName() + "\n"); // Append to Grammar Quality
-                    if (uploadedResumes.size() >= 2) {
-                        compareButton.setEnabled(true);
+                List<File> selection = Arrays.asList(fileChooser.getSelectedFiles());
+                startTask(new BackgroundTask("Reading " + (selection.size() == 1 ? selection.get(0).getName() : selection.size() + " selections")) {
+                    @Override
+                    protected void work() throws Exception {
+                        List<File> pdfs = PdfTextExtractor.collectPdfs(selection);
+                        int[] finished = {0};
+                        PdfTextExtractor.IngestReport report = engine.ingest(pdfs, document -> {
+                            ui(() -> {
+                                uploadedResumes.add(document.getFile());
+                                selectedFile = document.getFile();
+                                resumeResultText.append("Uploaded: " + document.getFile().getName() + "\n");
+                                grammarAndLanguageQualityText.append("Uploaded: " + document.getFile().getName() + "\n"); // Append to Grammar Quality
+                                if (uploadedResumes.size() >= 2) {
+                                    compareButton.setEnabled(true);
+                                }
+                            });
+                            synchronized (finished) {
+                                progress(++finished[0], pdfs.size());
+                            }
+                        }, (file, ex) -> {
+                            ui(() -> {
+                                resumeResultText.append("Error reading the PDF file: " + file.getName() + "\n");
+                                grammarAndLanguageQualityText.append("Error reading the PDF file: " + file.getName() + "\n"); // Append error to Grammar Quality
+                            });
+                            ex.printStackTrace();
+                            synchronized (finished) {
+                                progress(++finished[0], pdfs.size());
+                            }
+                        });
+                        if (pdfs.size() > 1) {
+                            ui(() -> resumeResultText.append(report.summary() + "\n"));
+                        }
                     }
-                } catch (IOException ex) {
-                    resumeResultText.append("Error reading the PDF file: " + selectedFile.getName() + "\n");
-                    grammarAndLanguageQualityText.append("Error reading the PDF file: " + selectedFile.getName() + "\n"); // Append error to Grammar Quality
-                    ex.printStackTrace();
-                }
+                });
             }
         });
 
         analyzeButton.addActionListener(e -> {
             if (uploadedResumes.size() >= 1) {
                 File resumeToAnalyze = uploadedResumes.get(uploadedResumes.size() - 1);
-                String textToAnalyze = resumeTexts.get(resumeToAnalyze);
+                analysisTabs.setSelectedIndex(0);
                 resumeResultText.setText("Analyzing: " + resumeToAnalyze.getName() + "\n");
-                generateAIAnalysis(textToAnalyze);
-                predictInterviewProbability(textToAnalyze);
+                boolean combined = combinedAnalysisCheckBox.isSelected();
+                startTask(new BackgroundTask("Analyzing " + resumeToAnalyze.getName()) {
+                    @Override
+                    protected void work() {
+                        ResumeDocument document;
+                        try {
+                            document = engine.document(resumeToAnalyze);
+                        } catch (IOException ex) {
+                            ui(() -> resumeResultText.append("Error reading the PDF file: " + resumeToAnalyze.getName() + "\n"));
+                            ex.printStackTrace();
+                            return;
+                        }
+                        // Analyzed in an earlier run: shown from the result store without any AI call
+                        ResumeAnalysisEngine.Analysis stored = engine.storedAnalysis(document);
+                        if (stored != null) {
+                            showAnalysis(this, stored);
+                            return;
+                        }
+                        String textToAnalyze = document.getText();
+                        // Fall back to the separate ATS, grammar and probability calls if the combined reply can't be parsed
+                        if (combined && generateCombinedAnalysis(this, document)) {
+                            return;
+                        }
+                        String analysis = generateAIAnalysis(this, textToAnalyze);
+                        String grammar = analysis != null && !isCancelled() ? extractAndDisplayGrammarAndLanguage(this, textToAnalyze) : null;
+                        if (!isCancelled()) {
+                            int probability = predictInterviewProbability(this, textToAnalyze);
+                            if (grammar != null && probability >= 0) {
+                                engine.saveAnalysis(document, new ResumeAnalysisEngine.Analysis(
+                                        Math.max(0, AiResponseParser.parse(analysis).getAtsScore()), probability, analysis, grammar));
+                            }
+                        }
+                    }
+                });
             } else {
                 JOptionPane.showMessageDialog(frame, "Please upload at least one resume to analyze.", "Upload Required", JOptionPane.WARNING_MESSAGE);
             }
@@ -180,11 +285,19 @@ public class AIResumeAnalyzer {
 
         compareButton.addActionListener(e -> {
             if (uploadedResumes.size() >= 2) {
-                String numResumesStr = JOptionPane.showInputDialog(frame, "Enter the number of resumes to compare (minimum 2):");
+                String numResumesStr = JOptionPane.showInputDialog(frame, "All uploaded resumes are compared. Enter how many of the top-ranked to list (minimum 2):");
                 try {
                     numberOfResumesToUpload = Integer.parseInt(numResumesStr);
                     if (numberOfResumesToUpload >= 2 && numberOfResumesToUpload <= uploadedResumes.size()) {
-                        performResumeComparison();
+                        // Snapshot on the EDT so uploads made while the batch runs don't race with it
+                        List<File> resumes = new ArrayList<>(uploadedResumes);
+                        int topN = numberOfResumesToUpload;
+                        startTask(new BackgroundTask("Comparing " + resumes.size() + " resumes") {
+                            @Override
+                            protected void work() throws InterruptedException {
+                                performResumeComparison(this, resumes, topN);
+                            }
+                        });
                     } else {
                         JOptionPane.showMessageDialog(frame, "Please enter a valid number of resumes (minimum 2, and not more than uploaded).", "Input Error", JOptionPane.ERROR_MESSAGE);
                     }
@@ -196,59 +309,174 @@ public class AIResumeAnalyzer {
             }
         });
 
+        searchButton.addActionListener(e -> {
+            String query = JOptionPane.showInputDialog(frame,
+                    "Search indexed resumes (words are ANDed; OR, -exclude, \"exact phrase\" and skill:name are supported):");
+            if (query == null || query.trim().isEmpty()) {
+                return;
+            }
+            startTask(new BackgroundTask("Searching for " + query.trim()) {
+                @Override
+                protected void work() {
+                    long started = System.nanoTime();
+                    List<File> matches = engine.search(query);
+                    long micros = (System.nanoTime() - started) / 1000;
+                    ui(() -> {
+                        analysisTabs.setSelectedIndex(0);
+                        resumeResultText.append("\n--- Search: " + query.trim() + " (" + matches.size() + " of " + engine.indexedCount()
+                                + " resumes, " + micros + " µs) ---\n");
+                        for (File match : matches) {
+                            resumeResultText.append(match.getName() + "  [" + match.getParent() + "]\n");
+                        }
+                        // Matches feed straight into a comparison; indexed files from earlier sessions are re-read on demand
+                        if (matches.size() >= 2 && JOptionPane.showConfirmDialog(frame, "Compare the " + matches.size() + " matching resumes?",
+                                "Search Results", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                            startTask(new BackgroundTask("Comparing " + matches.size() + " search matches") {
+                                @Override
+                                protected void work() throws InterruptedException {
+                                    performResumeComparison(this, matches, matches.size());
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        });
+
+        matchJobButton.addActionListener(e -> {
+            if (engine.vectorCount() == 0 && !engine.isWarming()) {
+                JOptionPane.showMessageDialog(frame, "Please upload at least one resume to match against.", "Upload Required", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            JTextArea jobDescriptionInput = createStyledTextArea();
+            JScrollPane jobDescriptionScrollPane = new JScrollPane(jobDescriptionInput);
+            jobDescriptionScrollPane.setPreferredSize(new Dimension(500, 300));
+            int choice = JOptionPane.showConfirmDialog(frame, jobDescriptionScrollPane, "Paste the job description",
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            String jobDescription = jobDescriptionInput.getText();
+            if (choice != JOptionPane.OK_OPTION || jobDescription.trim().isEmpty()) {
+                return;
+            }
+            startTask(new BackgroundTask("Matching job description") {
+                @Override
+                protected void work() throws InterruptedException {
+                    if (engine.isWarming()) {
+                        ui(() -> resumeResultText.append("\nLoading resumes from earlier sessions before matching...\n"));
+                    }
+                    long started = System.nanoTime();
+                    List<ResumeVectorStore.Match> matches = engine.matchJobDescription(jobDescription, JOB_MATCH_RESULTS);
+                    long millis = (System.nanoTime() - started) / 1_000_000;
+                    ui(() -> {
+                        analysisTabs.setSelectedIndex(0);
+                        resumeResultText.append("\n--- Job Description Match (top " + matches.size() + " of " + engine.vectorCount()
+                                + " resumes, " + millis + " ms) ---\n");
+                        for (int i = 0; i < matches.size(); i++) {
+                            ResumeVectorStore.Match match = matches.get(i);
+                            resumeResultText.append("Rank " + (i + 1) + ": " + match.file.getName() + " - Similarity: "
+                                    + String.format("%.3f", match.score) + "\n");
+                        }
+                    });
+                }
+            });
+        });
+
         downloadAnalysisButton.addActionListener(e -> {
             String analysisText = resumeResultText.getText() + "\n\nATS Compatibility Score: " + dualScorePanel.getAtsScore() + "%\nInterview Probability: " + dualScorePanel.getInterviewProbability() + "%\n\n" +
                     "Grammar Quality:\n" + grammarAndLanguageQualityText.getText() + "\n\n" +
                     "Chatbot Interactions:\n" + chatbotArea.getText(); // Include chatbot text
 
-            System.out.println("Text to PDF:\n" + analysisText);
             if (!analysisText.isEmpty()) {
-                try {
-                    JFileChooser fileChooser = new JFileChooser();
-                    fileChooser.setDialogTitle("Save Analysis as PDF");
-                    FileNameExtensionFilter filter = new FileNameExtensionFilter("PDF files (*.pdf)", "pdf");
-                    fileChooser.setFileFilter(filter);
-
-                    int userSelection = fileChooser.showSaveDialog(frame);
-
-                    if (userSelection == JFileChooser.APPROVE_OPTION) {
-                        File fileToSave = fileChooser.getSelectedFile();
-                        if (!fileToSave.getName().toLowerCase().endsWith(".pdf")) {
-                            fileToSave = new File(fileToSave.getAbsolutePath() + ".pdf");
+                JFileChooser fileChooser = new JFileChooser();
+                fileChooser.setDialogTitle("Save Analysis as PDF");
+                FileNameExtensionFilter filter = new FileNameExtensionFilter("PDF files (*.pdf)", "pdf");
+                fileChooser.setFileFilter(filter);
+
+                int userSelection = fileChooser.showSaveDialog(frame);
+
+                if (userSelection == JFileChooser.APPROVE_OPTION) {
+                    File chosen = fileChooser.getSelectedFile();
+                    File fileToSave = chosen.getName().toLowerCase().endsWith(".pdf") ? chosen : new File(chosen.getAbsolutePath() + ".pdf");
+                    // The text is captured above on the EDT; only the PDF writing runs in the background
+                    startTask(new BackgroundTask("Saving " + fileToSave.getName()) {
+                        @Override
+                        protected void work() {
+                            try {
+                                generatePdfFromText(analysisText, fileToSave);
+                                ui(() -> JOptionPane.showMessageDialog(frame, "Analysis saved to: " + fileToSave.getAbsolutePath(), "Download Successful", JOptionPane.INFORMATION_MESSAGE));
+                            } catch (IOException ex) {
+                                ui(() -> JOptionPane.showMessageDialog(frame, "Error saving analysis to PDF: " + ex.getMessage(), "Download Error", JOptionPane.ERROR_MESSAGE));
+                                ex.printStackTrace();
+                            }
                         }
-                        generatePdfFromText(analysisText, fileToSave);
-                        JOptionPane.showMessageDialog(frame, "Analysis saved to: " + fileToSave.getAbsolutePath(), "Download Successful", JOptionPane.INFORMATION_MESSAGE);
-                    }
-                } catch (IOException ex) {
-                    JOptionPane.showMessageDialog(frame, "Error saving analysis to PDF: " + ex.getMessage(), "Download Error", JOptionPane.ERROR_MESSAGE);
-                    ex.printStackTrace();
+                    });
                 }
             } else {
                 JOptionPane.showMessageDialog(frame, "No analysis to download.", "Download Error", JOptionPane.WARNING_MESSAGE);
             }
         });
 
+        exportComparisonButton.addActionListener(e -> {
+            ResumeAnalysisEngine.Comparison comparison = lastComparison;
+            if (comparison == null || comparison.scores.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, "Run a comparison first.", "Export Error", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Export Comparison (a .pdf, .csv and .json are written with this name)");
+            fileChooser.setSelectedFile(new File("comparison"));
+            if (fileChooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File base = fileChooser.getSelectedFile();
+            startTask(new BackgroundTask("Exporting " + comparison.scores.size() + " resumes") {
+                @Override
+                protected void work() throws InterruptedException {
+                    try {
+                        long started = System.nanoTime();
+                        List<File> written = reportExporter.export(ComparisonReportExporter.rank(comparison), base);
+                        long millis = (System.nanoTime() - started) / 1_000_000;
+                        ui(() -> JOptionPane.showMessageDialog(frame, "Exported " + comparison.scores.size() + " resumes in " + millis + " ms to:\n"
+                                + written.stream().map(File::getAbsolutePath).collect(Collectors.joining("\n")),
+                                "Export Successful", JOptionPane.INFORMATION_MESSAGE));
+                    } catch (IOException ex) {
+                        ui(() -> JOptionPane.showMessageDialog(frame, "Error exporting comparison: " + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE));
+                        ex.printStackTrace();
+                    }
+                }
+            });
+        });
+
         sendButton.addActionListener(e -> {
             String userInput = chatbotInput.getText();
             if (!userInput.isEmpty() && selectedFile != null) {
                 chatbotArea.append("You: " + userInput + "\n");
                 chatbotInput.setText("");
-                try {
-                    String resumeText = extractTextFromPDF(selectedFile);
-                    List<String> aiResponseList = callAI("Analyze chat request related to the resume:", userInput + "\n\n" + resumeText);
-                    if (aiResponseList != null && !aiResponseList.isEmpty()) {
-                        String aiResponse = aiResponseList.get(0).trim();
-                        chatbotArea.append("AI: " + aiResponse + "\n");
-                    } else {
-                        chatbotArea.append("AI: No response received.\n");
+                File chatFile = selectedFile;
+                startTask(new BackgroundTask("Waiting for chatbot") {
+                    @Override
+                    protected void work() {
+                        try {
+                            ResumeDocument chatDocument = engine.document(chatFile);
+                            if (STREAMING_ENABLED) {
+                                ui(() -> chatbotArea.append("AI: "));
+                                String streamed = engine.chat(chatDocument, userInput, streamInto(this, chatbotArea, null));
+                                ui(() -> chatbotArea.append(streamed.isEmpty() ? "No response received.\n" : "\n"));
+                                return;
+                            }
+                            String aiResponse = engine.chat(chatDocument, userInput, null);
+                            ui(() -> chatbotArea.append("AI: " + (aiResponse.isEmpty() ? "No response received." : aiResponse) + "\n"));
+                        } catch (CohereClient.ApiException ex) {
+                            ui(() -> chatbotArea.append("Error: API responded with code " + ex.getStatusCode() + "\n"));
+                            ex.printStackTrace();
+                        } catch (IOException ex) {
+                            ui(() -> chatbotArea.append("Error reading the PDF file.\n"));
+                            ex.printStackTrace();
+                        } catch (Exception ex) {
+                            ui(() -> chatbotArea.append("Error communicating with AI for chat.\n"));
+                            ex.printStackTrace();
+                        }
                     }
-                } catch (IOException ex) {
-                    chatbotArea.append("Error reading the PDF file.\n");
-                    ex.printStackTrace();
-                } catch (Exception ex) {
-                    chatbotArea.append("Error communicating with AI for chat.\n");
-                    ex.printStackTrace();
-                }
+                });
             } else if (selectedFile == null) {
                 chatbotArea.append("Please upload a resume first to use the chatbot.\n");
             } else {
@@ -257,31 +485,219 @@ public class AIResumeAnalyzer {
         });
 
         chatbotInput.addActionListener(e -> sendButton.doClick());
+
+        cancelButton.addActionListener(e -> {
+            for (BackgroundTask task : new ArrayList<>(runningTasks)) {
+                task.cancel(true);
+            }
+        });
+
+        metricsButton.addActionListener(e -> showMetrics(frame));
     }
 
-    private void predictInterviewProbability(String resumeText) {
-        try {
-            String prompt = "Estimate the probability (as a percentage) of this resume leading to an interview, considering its overall quality, ATS compatibility, skills match, and presentation.\n\n" +
-                    "RESUME:\n" + resumeText.substring(0, Math.min(4000, resumeText.length())) + "\n\n" +
-                    "Provide the probability as: Interview Probability: [Percentage]%";
-
-            String aiResponse = callCohereAPI(prompt);
-            Pattern pattern = Pattern.compile("Interview Probability: (\\d+)%");
-            Matcher matcher = pattern.matcher(aiResponse);
-            if (matcher.find()) {
+    // Live latency percentiles and counters, refreshed every second while the window is open
+    private void showMetrics(JFrame frame) {
+        if (metricsDialog != null) {
+            metricsDialog.toFront();
+            return;
+        }
+        JTextArea metricsText = new JTextArea(Metrics.describe());
+        metricsText.setEditable(false);
+        metricsText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        javax.swing.Timer refresh = new javax.swing.Timer(1000, e -> metricsText.setText(Metrics.describe()));
+
+        JButton saveButton = createStyledButton("Save as JSON");
+        saveButton.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setSelectedFile(new File("metrics.json"));
+            if (fileChooser.showSaveDialog(metricsDialog) == JFileChooser.APPROVE_OPTION) {
+                Metrics.dump(fileChooser.getSelectedFile());
+            }
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(saveButton);
+
+        metricsDialog = new JDialog(frame, "Metrics", false);
+        metricsDialog.setLayout(new BorderLayout());
+        metricsDialog.add(new JScrollPane(metricsText), BorderLayout.CENTER);
+        metricsDialog.add(buttons, BorderLayout.SOUTH);
+        metricsDialog.setSize(760, 520);
+        metricsDialog.setLocationRelativeTo(frame);
+        metricsDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                refresh.stop();
+                metricsDialog = null;
+            }
+        });
+        metricsDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        refresh.start();
+        metricsDialog.setVisible(true);
+    }
+
+    // --- Comparison View ---
+    // A sortable table with one row per resume and a details pane below it. Only the selected row's
+    // analysis is rendered, and its interview probability is fetched once the selection settles.
+    private JComponent createComparisonView() {
+        comparisonTable = new JTable(comparisonModel);
+        comparisonTable.setFont(DEFAULT_FONT);
+        comparisonTable.setRowHeight(DEFAULT_FONT.getSize() + 10);
+        comparisonTable.setAutoCreateRowSorter(true);
+        comparisonTable.setFillsViewportHeight(true);
+        comparisonTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        comparisonTable.getColumnModel().getColumn(ComparisonTableModel.NAME).setPreferredWidth(180);
+        comparisonTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showSelectedComparisonRow();
+                probabilityDelay.restart();
+            }
+        });
+        probabilityDelay = new javax.swing.Timer(PROBABILITY_DELAY_MILLIS, e -> fetchSelectedProbability());
+        probabilityDelay.setRepeats(false);
+
+        comparisonDetails = createStyledTextArea(RESULT_FONT);
+        comparisonDetails.setText("Compare resumes to list them here; select a row to see its analysis.");
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(comparisonTable), new JScrollPane(comparisonDetails));
+        split.setResizeWeight(0.5);
+        split.setBorder(null);
+        return split;
+    }
+
+    private ComparisonTableModel.Row selectedComparisonRow() {
+        int viewRow = comparisonTable.getSelectedRow();
+        return viewRow < 0 ? null : comparisonModel.getRow(comparisonTable.convertRowIndexToModel(viewRow));
+    }
+
+    private void showSelectedComparisonRow() {
+        ComparisonTableModel.Row row = selectedComparisonRow();
+        if (row == null) {
+            return;
+        }
+        comparisonDetails.setText(row.details());
+        comparisonDetails.setCaretPosition(0);
+        grammarAndLanguageQualityText.setText(row.grammar == null ? "No grammar analysis for " + row.file.getName() + "." : row.grammar);
+        dualScorePanel.setAtsScore(row.score == null ? 0 : row.score);
+        dualScorePanel.setInterviewProbability(row.interviewProbability == null ? 0 : row.interviewProbability);
+    }
+
+    // Updates a row on the EDT, refreshing the details when it is the selected one
+    private void updateComparisonRow(File file, Consumer<ComparisonTableModel.Row> change) {
+        comparisonModel.update(file, change);
+        ComparisonTableModel.Row selected = selectedComparisonRow();
+        if (selected != null && selected.file.equals(file)) {
+            showSelectedComparisonRow();
+        }
+    }
+
+    // One request per resume and run, and only for rows that have finished their analysis
+    private void fetchSelectedProbability() {
+        ComparisonTableModel.Row row = selectedComparisonRow();
+        if (row == null || row.score == null || row.interviewProbability != null || !probabilityRequested.add(row.file)) {
+            return;
+        }
+        File file = row.file;
+        startTask(new BackgroundTask("Estimating interview probability for " + file.getName()) {
+            @Override
+            protected void work() throws Exception {
                 try {
-                    int probability = Integer.parseInt(matcher.group(1));
-                    dualScorePanel.setInterviewProbability(probability);
-                } catch (NumberFormatException e) {
-                    System.err.println("Could not parse interview probability: " + matcher.group(1));
-                    dualScorePanel.setInterviewProbability(0);
+                    int probability = engine.interviewProbability(engine.document(file).getText(), RequestScheduler.Priority.INTERACTIVE);
+                    ui(() -> updateComparisonRow(file, r -> r.interviewProbability = probability));
+                } catch (Exception e) {
+                    // Selecting the row again retries
+                    ui(() -> probabilityRequested.remove(file));
+                    throw e;
                 }
-            } else {
-                dualScorePanel.setInterviewProbability(0);
             }
+        });
+    }
+
+    // --- Background Task Pipeline ---
+    // AI and PDF work runs on SwingWorker threads; every UI update is queued through ui()
+    // so it lands on the EDT in order and is dropped once the task has been cancelled.
+    private abstract class BackgroundTask extends SwingWorker<Void, Runnable> {
+        private final String description;
+
+        BackgroundTask(String description) {
+            this.description = description;
+        }
+
+        protected abstract void work() throws Exception;
+
+        void ui(Runnable update) {
+            publish(update);
+        }
+
+        void progress(int completed, int total) {
+            setProgress(total == 0 ? 100 : Math.min(100, completed * 100 / total));
+        }
+
+        @Override
+        protected final Void doInBackground() throws Exception {
+            work();
+            return null;
+        }
+
+        @Override
+        protected void process(List<Runnable> updates) {
+            if (!isCancelled()) {
+                long started = System.nanoTime();
+                updates.forEach(Runnable::run);
+                UI_RENDER.recordSince(started);
+            }
+        }
+
+        @Override
+        protected void done() {
+            runningTasks.remove(this);
+            try {
+                get();
+                refreshTaskStatus(description + " - done");
+            } catch (CancellationException e) {
+                refreshTaskStatus(description + " - cancelled");
+            } catch (InterruptedException | ExecutionException e) {
+                refreshTaskStatus(description + " - failed");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void startTask(BackgroundTask task) {
+        runningTasks.add(task);
+        task.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName()) && runningTasks.contains(task)) {
+                taskProgressBar.setIndeterminate(false);
+                taskProgressBar.setValue((Integer) evt.getNewValue());
+            }
+        });
+        taskProgressBar.setValue(0);
+        refreshTaskStatus(task.description);
+        task.execute();
+    }
+
+    // Shows the most recently started task while anything is running, otherwise the given status
+    private void refreshTaskStatus(String idleStatus) {
+        boolean busy = !runningTasks.isEmpty();
+        cancelButton.setEnabled(busy);
+        taskProgressBar.setIndeterminate(busy && taskProgressBar.getValue() == 0);
+        if (!busy) {
+            taskProgressBar.setValue(0);
+            taskProgressBar.setString(idleStatus);
+            return;
+        }
+        String status = runningTasks.get(runningTasks.size() - 1).description;
+        taskProgressBar.setString(runningTasks.size() > 1 ? status + " (+" + (runningTasks.size() - 1) + " more)" : status);
+    }
+
+    // The probability shown, or -1 if the call failed
+    private int predictInterviewProbability(BackgroundTask task, String resumeText) {
+        try {
+            int probability = engine.interviewProbability(resumeText, RequestScheduler.Priority.INTERACTIVE);
+            task.ui(() -> dualScorePanel.setInterviewProbability(probability));
+            return probability;
         } catch (Exception e) {
-            dualScorePanel.setInterviewProbability(0);
+            task.ui(() -> dualScorePanel.setInterviewProbability(0));
             e.printStackTrace();
+            return -1;
         }
     }
 
@@ -346,345 +762,211 @@ public class AIResumeAnalyzer {
     }
 
     private void generatePdfFromText(String text, File outputFile) throws IOException {
-        PDDocument document = new PDDocument();
-        PDPage page = new PDPage();
-        document.addPage(page);
-        PDPageContentStream contentStream = null;
-        try {
-            contentStream = new PDPageContentStream(document, page);
-            contentStream.setFont(PDType1Font.COURIER, 12);
-            float leading = 14.5f;
-            contentStream.setLeading(leading);
-
-            float margin = 50;float yPosition = page.getMediaBox().getHeight() - margin;
-            float startX = margin;
-
-            String[] lines = text.split("\n");
-
-            for (String line : lines)
-            {
-                List<String> wrappedLines = new ArrayList<>();
-                while (line.length() > 0) {
-                    int breakIndex = Math.min(line.length(), (int) ((page.getMediaBox().getWidth() - 2 * margin) / (PDType1Font.COURIER.getStringWidth(line.substring(0, 1)) / 1000 * 12)));
-                    wrappedLines.add(line.substring(0, breakIndex));
-                    line = line.substring(breakIndex).trim();
-                }
-
-                for (String wrappedLine : wrappedLines) {
-                    try {
-                        contentStream.beginText();
-                        contentStream.newLineAtOffset(startX, yPosition);
-                        contentStream.showText(wrappedLine);
-                        contentStream.endText();
-                        yPosition -= leading;
-
-                        if (yPosition < margin) {
-                            contentStream.close();
-                            page = new PDPage();
-                            document.addPage(page);
-                            contentStream = new PDPageContentStream(document, page);
-                            contentStream.setFont(PDType1Font.COURIER, 12);
-                            contentStream.setLeading(leading);
-                            yPosition = page.getMediaBox().getHeight() - margin;
-                        }
-                    } catch (IOException e) {
-                        System.err.println("Error writing line to PDF: " + wrappedLine + " - " + e.getMessage());
-                    }
-                }
-            }
-
-        } finally {
-            if (contentStream != null) {
-                try {
-                    contentStream.close();
-                } catch (IOException e) {
-                    System.err.println("Error closing content stream: " + e.getMessage());
-                }
-            }
-            document.save(outputFile);
-            document.close();
+        try (PdfReportWriter writer = new PdfReportWriter(outputFile)) {
+            writer.writeText(text);
         }
     }
 
-    private void generateAIAnalysis(String resumeText) {
+    // The ATS analysis shown, or null if the call failed
+    private String generateAIAnalysis(BackgroundTask task, String resumeText) {
         try {
-            String prompt = "Analyze the following resume for ATS compatibility, format, sections, skills, style. " +
-                    "Identify key skills, provide a summary of ATS keyword matches.\n\n" +
-                    "RESUME:\n" + resumeText.substring(0, Math.min(4000, resumeText.length())) +
-                    "\n\nProvide the analysis in the following format:\n" +
-                    "ATS COMPATIBILITY SCORE: [Numerical score out of 100]\n" +
-                    "ATS COMPATIBILITY DETAILS: [Summary based on keywords and formatting]\n" +
-                    "FORMAT: [Strengths and weaknesses of the formatting]\n" +
-                    "SECTIONS: [Completeness and relevance of the sections]\n" +
-                    "SKILLS: [Key skills identified]\n" +
-                    "STYLE: [Professionalism and clarity of writing style]\n" +
-                    "ATS Keyword Matches: [List of key categories and whether relevant keywords are present]";
-
-            String aiResponse = callCohereAPI(prompt);
-            resumeResultText.setText(aiResponse);
-
-            Pattern pattern = Pattern.compile("ATS COMPATIBILITY SCORE: (\\d+)");
-            Matcher matcher = pattern.matcher(aiResponse);
-            int atsScore = 0;
-            if (matcher.find()) {
-                try {
-                    atsScore = Integer.parseInt(matcher.group(1));
-                } catch (NumberFormatException e) {
-                    System.err.println("Could not parse ATS score: " + matcher.group(1));
-                }
+            String aiResponse;
+            if (STREAMING_ENABLED) {
+                // Show the score as soon as its line has streamed in rather than waiting for the whole reply
+                task.ui(() -> resumeResultText.setText(""));
+                aiResponse = engine.streamCohereAPI(engine.buildAtsPrompt(resumeText), streamInto(task, resumeResultText, line -> {
+                    int streamedScore = AiResponseParser.parse(line).getAtsScore();
+                    if (streamedScore >= 0) {
+                        task.ui(() -> dualScorePanel.setAtsScore(streamedScore));
+                    }
+                }));
+            } else {
+                aiResponse = callCohereAPI(engine.buildAtsPrompt(resumeText));
+                task.ui(() -> resumeResultText.setText(aiResponse));
             }
-            dualScorePanel.setAtsScore(atsScore);
-
-            // Extract and display detailed analysis
-            extractAndDisplayGrammarAndLanguage(aiResponse, resumeText); // Pass resumeText
 
+            int atsScore = Math.max(0, AiResponseParser.parse(aiResponse).getAtsScore());
+            task.ui(() -> dualScorePanel.setAtsScore(atsScore));
+            return aiResponse;
         } catch (Exception e) {
-            resumeResultText.setText("Error during AI analysis: " + e.getMessage());
-            dualScorePanel.setAtsScore(0);
-            dualScorePanel.setInterviewProbability(0);
+            task.ui(() -> {
+                resumeResultText.setText("Error during AI analysis: " + e.getMessage());
+                dualScorePanel.setAtsScore(0);
+                dualScorePanel.setInterviewProbability(0);
+            });
             e.printStackTrace();
+            return null;
         }
     }
 
-    private void extractAndDisplayGrammarAndLanguage(String aiResponse, String resumeText) {
-        //  Prompt specifically for grammar/language after the main analysis
-        String grammarPrompt = "Analyze the following resume for grammar and language quality. " +
-                "Identify specific errors and suggest improvements.\n\n" +
-                "RESUME:\n" + resumeText.substring(0, Math.min(4000, resumeText.length()));
+    // Single-call variant of generateAIAnalysis + extractAndDisplayGrammarAndLanguage + predictInterviewProbability.
+    // Returns false when the response isn't usable JSON so the caller can use the three-call path instead.
+    private boolean generateCombinedAnalysis(BackgroundTask task, ResumeDocument document) {
+        ResumeAnalysisEngine.Analysis result = engine.combinedAnalysis(document.getText(), RequestScheduler.Priority.INTERACTIVE);
+        if (result == null) {
+            return false;
+        }
+        engine.saveAnalysis(document, result);
+        showAnalysis(task, result);
+        return true;
+    }
 
+    private void showAnalysis(BackgroundTask task, ResumeAnalysisEngine.Analysis result) {
+        task.ui(() -> {
+            resumeResultText.setText(result.analysis);
+            dualScorePanel.setAtsScore(result.atsScore);
+            dualScorePanel.setInterviewProbability(result.interviewProbability);
+            grammarAndLanguageQualityText.setText(result.grammar.isEmpty() ? "No specific feedback on grammar and language quality." : result.grammar);
+        });
+    }
+
+    // The grammar feedback shown ("" when there was none), or null if the call failed
+    private String extractAndDisplayGrammarAndLanguage(BackgroundTask task, String resumeText) {
         try {
-            String grammarResponse = callCohereAPI(grammarPrompt);
-            if (grammarResponse != null && !grammarResponse.trim().isEmpty()) {
-                grammarAndLanguageQualityText.setText(grammarResponse.trim());
+            //  Prompt specifically for grammar/language after the main analysis
+            String grammarResponse;
+            if (STREAMING_ENABLED) {
+                task.ui(() -> grammarAndLanguageQualityText.setText(""));
+                grammarResponse = engine.streamCohereAPI(engine.buildGrammarPrompt(resumeText), streamInto(task, grammarAndLanguageQualityText, null));
             } else {
-                grammarAndLanguageQualityText.setText("No specific feedback on grammar and language quality.");
+                grammarResponse = callCohereAPI(engine.buildGrammarPrompt(resumeText));
             }
+            if (grammarResponse != null && !grammarResponse.trim().isEmpty()) {
+                task.ui(() -> grammarAndLanguageQualityText.setText(grammarResponse.trim()));
+                return grammarResponse.trim();
+            }
+            task.ui(() -> grammarAndLanguageQualityText.setText("No specific feedback on grammar and language quality."));
+            return "";
         } catch (Exception e) {
-            grammarAndLanguageQualityText.setText("Error retrieving grammar analysis: " + e.getMessage());
+            task.ui(() -> grammarAndLanguageQualityText.setText("Error retrieving grammar analysis: " + e.getMessage()));
             e.printStackTrace(); // Log the error
+            return null;
         }
     }
 
-    private String extractSection(String text, String sectionHeader) {
-        // Make the search case-insensitive and allow for some variations in spacing
-        String regexHeader = "(?i)\\s*" + Pattern.quote(sectionHeader) + "\\s*:?\\s*\\n?";
-        Pattern pattern = Pattern.compile(regexHeader);
-        Matcher matcher = pattern.matcher(text);
-
-        if (matcher.find()) {
-            int start = matcher.end(); // Start after the header
-            int nextSectionStart = -1;
-
-            // Find the start of the next major section (e.g., "ATS COMPATIBILITY SCORE:")
-            String[] majorHeaders = {"ATS COMPATIBILITY SCORE:", "FORMAT:", "SECTIONS:", "SKILLS:", "STYLE:", "ATS Keyword Matches:"}; // Add more headers as needed
-            for (String header : majorHeaders) {
-                String regexNextHeader = "(?i)\\s*" + Pattern.quote(header) + "\\s*:?\\s*\\n?";
-                Pattern nextPattern = Pattern.compile(regexNextHeader);
-                Matcher nextMatcher = nextPattern.matcher(text.substring(start));
-                if (nextMatcher.find()) {
-                    nextSectionStart = start + nextMatcher.start();
-                    break;
-                }
+    private void performResumeComparison(BackgroundTask task, List<File> resumes, int topN) throws InterruptedException {
+        task.ui(() -> {
+            comparisonModel.reset(resumes);
+            probabilityRequested.clear();
+            analysisTabs.setSelectedIndex(1);
+            comparisonDetails.setText("Analyzing and comparing " + resumes.size() + " resumes...\nSelect a row to see its analysis.");
+            grammarAndLanguageQualityText.setText(""); // Clear previous grammar results
+        });
+        ResumeAnalysisEngine.Comparison comparison = engine.compare(resumes, topN, new ResumeAnalysisEngine.ComparisonListener() {
+            @Override
+            public void readFailed(File file, IOException error) {
+                task.ui(() -> updateComparisonRow(file, row -> {
+                    row.status = "Unreadable";
+                    row.analysis = "Error reading the PDF file: " + error.getMessage();
+                }));
+                error.printStackTrace();
             }
 
-            if (nextSectionStart != -1) {
-                return text.substring(start, nextSectionStart).trim();
-            } else {
-                return text.substring(start).trim(); // Extract to the end of the text
+            @Override
+            public void localAnalysis(File file, String analysis, int score) {
+                task.ui(() -> updateComparisonRow(file, row -> {
+                    row.score = score;
+                    row.analysis = analysis;
+                    row.status = "Local (outside the top " + engine.getAiTopK() + ")";
+                }));
             }
-        }
-        return null;
-    }
-    private void performResumeComparison() {
-        resumeResultText.setText("Analyzing and comparing " + uploadedResumes.size() + " resumes...\n");
-        analysisResults.clear();
-        atsScores.clear();
-        rankedResumes.clear();
-        grammarAndLanguageQualityText.setText(""); // Clear previous grammar results
-
-        for (File resumeFile : uploadedResumes) {
-            String resumeText = resumeTexts.get(resumeFile);
-            try {
-                String analysis = generateAIAnalysisForComparison(resumeText);
-                analysisResults.put(resumeFile, analysis);
-                int score = extractATSScore(analysis);
-                atsScores.put(resumeFile, score);
-
-                resumeResultText.append("--- Analysis for: " + resumeFile.getName() + " ---\n");
-                resumeResultText.append("ATS Score: " + score + "/100\n");
-                resumeResultText.append(analysis + "\n\n");
-
-                //  Perform and display grammar analysis
-                String grammarAnalysis = generateGrammarAnalysis(resumeText);
-                grammarAndLanguageQualityText.append("--- Grammar Analysis for: " + resumeFile.getName() + " ---\n");
-                grammarAndLanguageQualityText.append(grammarAnalysis + "\n\n");
-
-            } catch (Exception e) {
-                resumeResultText.append("Error during AI analysis for: " + resumeFile.getName() + " - " + e.getMessage() + "\n");
-                grammarAndLanguageQualityText.append("Error during grammar analysis for: " + resumeFile.getName() + " - " + e.getMessage() + "\n");
-                e.printStackTrace();
-            }
-        }
 
-        rankedResumes = new ArrayList<>(atsScores.entrySet());
-        rankedResumes.sort(Map.Entry.<File, Integer>comparingByValue().reversed());
-
-        resumeResultText.append("\n--- Resume Ranking (Based on ATS Score) ---\n");
-        for (int i = 0; i < rankedResumes.size(); i++) {
-            Entry<File, Integer> entry = rankedResumes.get(i);
-            resumeResultText.append("Rank " + (i + 1) + ": " + entry.getKey().getName() + " - ATS Score: " + entry.getValue() + "/100\n");
-        }
-    }
-
-    private String generateGrammarAnalysis(String resumeText) throws Exception {
-        String grammarPrompt = "Analyze the following resume for grammar and language quality. " +
-                "Identify specific errors and suggest improvements.\n\n" +
-                "RESUME:\n" + resumeText.substring(0, Math.min(4000, resumeText.length()));
-
-        return callCohereAPI(grammarPrompt);
-    }
-
-    private String extractTextFromPDF(File file) throws IOException {
-        try (PDDocument document = PDDocument.load(file)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
-        }
-    }
-
-    private String generateAIAnalysisForComparison(String resumeText) throws Exception {
-        String prompt = "Analyze the following resume for ATS compatibility, format, sections, skills, and style. " +
-                "Identify key skills and provide a summary of ATS keyword matches. " +
-                "Based on your analysis, provide an ATS compatibility score out of 100.\n\n" +
-                "RESUME:\n" + resumeText.substring(0, Math.min(4000, resumeText.length())) +
-                "\n\nProvide the analysis in the following format:\n" +
-                "ATS COMPATIBILITY SCORE: [Numerical score out of 100]\n" +
-                "ATS COMPATIBILITY DETAILS: [Summary based on keywords and formatting]\n" +
-                "FORMAT: [Strengths and weaknesses of the formatting]\n" +
-                "SECTIONS: [Completeness and relevance of the sections]\n" +
-                "SKILLS: [Key skills identified]\n" +
-                "STYLE: [Professionalism and clarity of writing style]\n" +
-                "ATS Keyword Matches: [List of key categories and whether relevant keywords are present]";
-
-        return callCohereAPI(prompt);
-    }
-
-
-    private int extractATSScore(String analysisResult) {
-        String scoreLine = null;
-        Scanner scanner = new Scanner(analysisResult);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            if (line.startsWith("ATS COMPATIBILITY SCORE:")) {
-                scoreLine = line.substring("ATS COMPATIBILITY SCORE:".length()).trim();
-                break;
+            @Override
+            public void aiAnalysis(File file, String analysis, int score, boolean aiScored) {
+                task.ui(() -> updateComparisonRow(file, row -> {
+                    row.score = score;
+                    row.analysis = analysis;
+                    row.status = aiScored ? "Analyzed" : "Analyzed (local score)";
+                }));
             }
-        }
-        scanner.close();
 
-        try {
-            if (scoreLine != null) {
-                return Integer.parseInt(scoreLine.replaceAll("[^0-9]", ""));
+            @Override
+            public void analysisFailed(File file, Exception error) {
+                task.ui(() -> updateComparisonRow(file, row -> {
+                    row.status = "AI analysis failed";
+                    row.analysis = "Error during AI analysis: " + error.getMessage();
+                }));
             }
-        } catch (NumberFormatException e) {
-            System.err.println("Could not parse ATS score: " + scoreLine);
-        }
-        return 0;
-    }
 
-    private String callCohereAPI(String prompt) throws Exception {
-        URL url = new URL(COHERE_API_URL);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Authorization", "Bearer " + COHERE_API_KEY);
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setDoOutput(true);
-
-        JSONObject requestBody = new JSONObject();
-        requestBody.put("prompt", prompt);
-        requestBody.put("max_tokens", 800);
-        requestBody.put("temperature", 0.5);
-
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
-        }
-
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line.trim());
+            @Override
+            public void grammarAnalysis(File file, String grammarAnalysis) {
+                task.ui(() -> updateComparisonRow(file, row -> row.grammar = grammarAnalysis));
             }
-        } finally {
-            connection.disconnect();
-        }
-
-        JSONObject jsonResponse = new JSONObject(response.toString());
-        JSONArray generations = jsonResponse.getJSONArray("generations");
-        if (generations.length() > 0) {
-            return generations.getJSONObject(0).getString("text").trim();
-        }
-        return "No response from AI.";
-    }
-
-    private static List<String> callAI(String task, String userQuery) {
-        try {
-            URL apiUrl = new URL(COHERE_API_URL);
-            HttpURLConnection connection = (HttpURLConnection) apiUrl.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Authorization", "Bearer " + COHERE_API_KEY);
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
 
-            JSONObject body = new JSONObject();
-            body.put("model", "command");
-            body.put("prompt", task + "\n\n" + userQuery);
-            body.put("max_tokens", 350);
+            @Override
+            public void grammarFailed(File file, Exception error) {
+                task.ui(() -> updateComparisonRow(file, row -> row.grammar = "Error during grammar analysis: " + error.getMessage()));
+            }
 
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            @Override
+            public void progress(int completed, int total) {
+                task.progress(completed, total);
             }
+        });
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode != 200) {
-                System.out.println("Error: API responded with code " + responseCode);
-                return Arrays.asList("Error: Unable to process request.");
+        task.ui(() -> {
+            analysisResults = comparison.analyses;
+            atsScores = comparison.scores;
+            rankedResumes = comparison.ranking;
+            lastComparison = comparison;
+            exportComparisonButton.setEnabled(true);
+            // Unchanged resumes had no callback; duplicates are reported under the first file with that content
+            for (ComparisonTableModel.Row row : comparisonModel.getRows()) {
+                if (row.score == null && comparison.scores.containsKey(row.file)) {
+                    row.score = comparison.scores.get(row.file);
+                    row.analysis = comparison.analyses.get(row.file);
+                    row.grammar = comparison.grammar.get(row.file);
+                    row.status = "Unchanged (earlier result)";
+                } else if ("Queued".equals(row.status)) {
+                    row.status = "Same content as another resume";
+                }
+            }
+            for (int i = 0; i < rankedResumes.size(); i++) {
+                int rank = i + 1;
+                comparisonModel.update(rankedResumes.get(i).getKey(), row -> row.rank = rank);
             }
+            comparisonModel.rowsChanged();
+            comparisonTable.getRowSorter().setSortKeys(List.of(new RowSorter.SortKey(ComparisonTableModel.SCORE, SortOrder.DESCENDING)));
 
-            BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line);
+            StringBuilder summary = new StringBuilder("Compared " + comparisonModel.getRowCount() + " resumes");
+            if (comparison.reused > 0) {
+                summary.append(", ").append(comparison.reused).append(" ranked from earlier results without re-analysis");
+            }
+            summary.append(".\n\n--- Resume Ranking (Top ").append(rankedResumes.size()).append(", Based on ATS Score) ---\n");
+            for (int i = 0; i < rankedResumes.size(); i++) {
+                Entry<File, Integer> entry = rankedResumes.get(i);
+                summary.append("Rank ").append(i + 1).append(": ").append(entry.getKey().getName()).append(" - ATS Score: ").append(entry.getValue()).append("/100\n");
             }
-            br.close();
+            summary.append("\nSelect a row to see its analysis.");
+            if (selectedComparisonRow() == null) {
+                comparisonDetails.setText(summary.toString());
+                comparisonDetails.setCaretPosition(0);
+            }
+        });
+    }
 
-            return extractResponseText(response.toString());
-        } catch (Exception e) {
-            System.out.println("API Error: " + e.getMessage());
-            return Arrays.asList("Error: Unable to connect to AI service.");
-        }
+    private String callCohereAPI(String prompt) throws Exception {
+        return engine.callCohereAPI(prompt, ResumeAnalysisEngine.DEFAULT_MAX_TOKENS, ResumeAnalysisEngine.DEFAULT_TEMPERATURE,
+                RequestScheduler.Priority.INTERACTIVE);
     }
 
-    private static List<String> extractResponseText(String jsonResponse) {
-        try {
-            JSONObject responseObject = new JSONObject(jsonResponse);
-            if (responseObject.has("generations")) {
-                JSONArray generations = responseObject.getJSONArray("generations");
-                List<String> responses = new ArrayList<>();
-                for (int i = 0; i < generations.length(); i++) {
-                    JSONObject gen = generations.getJSONObject(i);
-                    if (gen.has("text")) {
-                        responses.add(gen.getString("text").trim());
-                    }
-                }
-                return responses;
+    // Appends streamed fragments to the text area and hands each completed line to onLine (if given)
+    private static Consumer<String> streamInto(BackgroundTask task, JTextArea target, Consumer<String> onLine) {
+        StringBuilder pendingLine = new StringBuilder();
+        return fragment -> {
+            task.ui(() -> target.append(fragment));
+            if (onLine == null) {
+                return;
             }
-        } catch (Exception e) {
-            System.out.println("JSON Parsing Error: " + e.getMessage());
-        }
-        return Arrays.asList("No valid response from AI.");
+            pendingLine.append(fragment);
+            int newline;
+            while ((newline = pendingLine.indexOf("\n")) >= 0) {
+                onLine.accept(pendingLine.substring(0, newline));
+                pendingLine.delete(0, newline + 1);
+            }
+        };
     }
+
 }
 
 class DualScorePanel extends JPanel {
@@ -0,0 +1,116 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+// Case-insensitive multi-pattern matcher. All patterns are found in a single pass over the text
+// regardless of how many there are, and only matches that start and end on word boundaries are
+// reported, so "java" does not match inside "javascript". Hyphens count as spaces, so
+// "problem solving" also matches "problem-solving".
+final class AhoCorasick {
+
+    private final List<String> patterns;
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private int[] failure;
+    // Pattern indexes ending at each node, including those inherited through failure links
+    private int[][] outputs;
+
+    AhoCorasick(List<String> patterns) {
+        this.patterns = new ArrayList<>(patterns);
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        transitions.add(new HashMap<>());
+        nodeOutputs.add(new ArrayList<>());
+
+        for (int p = 0; p < this.patterns.size(); p++) {
+            String pattern = this.patterns.get(p).toLowerCase(Locale.ROOT);
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                Integer next = transitions.get(node).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.get(node).put(c, next);
+                    transitions.add(new HashMap<>());
+                    nodeOutputs.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            nodeOutputs.get(node).add(p);
+        }
+        buildFailureLinks(nodeOutputs);
+    }
+
+    private void buildFailureLinks(List<List<Integer>> nodeOutputs) {
+        failure = new int[transitions.size()];
+        outputs = new int[transitions.size()][];
+        outputs[0] = toArray(nodeOutputs.get(0));
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            List<Integer> merged = new ArrayList<>(nodeOutputs.get(node));
+            for (int inherited : outputs[failure[node]]) {
+                merged.add(inherited);
+            }
+            outputs[node] = toArray(merged);
+
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure[node];
+                while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failure[fallback];
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                failure[child] = target != null && target != child ? target : 0;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    String pattern(int index) {
+        return patterns.get(index);
+    }
+
+    // hits[i] is the number of whole-word occurrences of pattern i in the text
+    int[] countMatches(CharSequence text) {
+        int[] hits = new int[patterns.size()];
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(Character.toLowerCase(text.charAt(i)));
+            while (node != 0 && !transitions.get(node).containsKey(c)) {
+                node = failure[node];
+            }
+            Integer next = transitions.get(node).get(c);
+            node = next == null ? 0 : next;
+            for (int p : outputs[node]) {
+                int start = i - patterns.get(p).length() + 1;
+                if (isBoundary(text, start - 1) && isBoundary(text, i + 1)) {
+                    hits[p]++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static char fold(char c) {
+        return c == '-' ? ' ' : c;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index) {
+        if (index < 0 || index >= text.length()) {
+            return true;
+        }
+        char c = text.charAt(index);
+        return !Character.isLetterOrDigit(c) && c != '+' && c != '#';
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Reads the structured replies the analysis prompts ask for ("ATS COMPATIBILITY SCORE: 82",
+// "FORMAT: ...", "Interview Probability: 64%") in one pass over the text. Headers are matched at
+// line starts with a single precompiled pattern that tolerates the usual variations: any case,
+// markdown bold or heading marks, list numbering, "ATS Score" for "ATS COMPATIBILITY SCORE", "-" for
+// ":", and a header on a line of its own with its text on the following lines. A section runs to
+// the next recognised header, whichever comes first in the text. Headers are top-level only: a
+// bulleted line such as "- Skills: present" is section text, not the start of a SKILLS section.
+final class AiResponseParser {
+
+    enum Field {
+        ATS_SCORE, ATS_DETAILS, FORMAT, SECTIONS, SKILLS, STYLE, KEYWORD_MATCHES, INTERVIEW_PROBABILITY
+    }
+
+    // Group i + 1 matches Field.values()[i]
+    private static final Pattern HEADER = Pattern.compile("(?i)[\\s>#]*(?:[*_]{2}(?=\\d))?(?:\\d{1,2}[.)]\\s*)?(?:[*_]{1,2}(?=[a-z]))?(?:"
+            + "(ats\\s+(?:compatibility\\s+)?score)"
+            + "|(ats\\s+(?:compatibility\\s+)?details?)"
+            + "|(format(?:ting)?)"
+            + "|(sections?)"
+            + "|(skills?)"
+            + "|(style|writing\\s+style)"
+            + "|((?:ats\\s+)?keyword\\s+match(?:es)?)"
+            + "|(interview\\s+probability)"
+            + ")\\s*[*_]*\\s*(?:[:\\-–]|$)[*_]*\\s*");
+    // Skips the "100" of "82/100" and of an echoed "[score out of 100]"
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\d.])(?<!/\\s?)(?<!of\\s)(\\d{1,3})(?![\\d])");
+    // Used only when a reply has no score header at all: "scores 78/100", "78 out of 100"
+    private static final Pattern LOOSE_SCORE = Pattern.compile("(?i)(\\d{1,3})\\s*(?:/|out\\s+of)\\s*100");
+    private static final Pattern LOOSE_PROBABILITY = Pattern.compile("(?i)probability[^\\d\\n]{0,40}(\\d{1,3})\\s*%");
+    private static final Field[] FIELDS = Field.values();
+    private static final Metrics.Histogram PARSE = Metrics.histogram("response.parse");
+
+    private AiResponseParser() {
+    }
+
+    static Result parse(CharSequence text) {
+        long started = System.nanoTime();
+        Map<Field, String> sections = new EnumMap<>(Field.class);
+        Matcher header = HEADER.matcher(text);
+        Field current = null;
+        int bodyStart = 0;
+        int lineStart = 0;
+        int length = text.length();
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            Field field = null;
+            if (mayBeHeader(text, lineStart, lineEnd)) {
+                header.region(lineStart, lineEnd);
+                field = header.lookingAt() ? matchedField(header) : null;
+            }
+            if (field != null) {
+                if (current != null) {
+                    sections.putIfAbsent(current, trim(text, bodyStart, lineStart));
+                }
+                current = field;
+                bodyStart = header.end();
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (current != null) {
+            sections.putIfAbsent(current, trim(text, bodyStart, length));
+        }
+
+        PARSE.recordSince(started);
+        return new Result(text, sections);
+    }
+
+    // Cheap filter so body lines skip the header pattern: the first letter after any decoration must
+    // be one that a header starts with
+    private static boolean mayBeHeader(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetter(c)) {
+                c = Character.toLowerCase(c);
+                return c == 'a' || c == 'f' || c == 's' || c == 'i' || c == 'w' || c == 'k';
+            }
+        }
+        return false;
+    }
+
+    private static Field matchedField(Matcher header) {
+        for (int group = 1; group <= FIELDS.length; group++) {
+            if (header.start(group) >= 0) {
+                return FIELDS[group - 1];
+            }
+        }
+        return null;
+    }
+
+    // First number in the section, or -1; values over 100 are clamped
+    private static int percentage(String section) {
+        if (section == null) {
+            return -1;
+        }
+        Matcher number = NUMBER.matcher(section);
+        return number.find() ? Math.min(100, Integer.parseInt(number.group(1))) : -1;
+    }
+
+    private static int loose(Pattern pattern, CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? Math.min(100, Integer.parseInt(matcher.group(1))) : -1;
+    }
+
+    private static String trim(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.subSequence(start, end).toString();
+    }
+
+    static final class Result {
+        private final Map<Field, String> sections;
+        // For the loose fallbacks, which only run when asked for
+        private final CharSequence text;
+
+        Result(CharSequence text, Map<Field, String> sections) {
+            this.text = text;
+            this.sections = sections;
+        }
+
+        // 0-100, or -1 when the reply has no score. Without a score header, a "78/100" or
+        // "78 out of 100" anywhere in the text is taken instead.
+        int getAtsScore() {
+            return has(Field.ATS_SCORE) ? percentage(sections.get(Field.ATS_SCORE)) : loose(LOOSE_SCORE, text);
+        }
+
+        // 0-100, or -1; without a header, "probability ... 64%" anywhere in the text is taken instead
+        int getInterviewProbability() {
+            return has(Field.INTERVIEW_PROBABILITY) ? percentage(sections.get(Field.INTERVIEW_PROBABILITY)) : loose(LOOSE_PROBABILITY, text);
+        }
+
+        boolean hasAtsScore() {
+            return getAtsScore() >= 0;
+        }
+
+        // The section's text, or "" when the reply has none
+        String get(Field field) {
+            return sections.getOrDefault(field, "");
+        }
+
+        boolean has(Field field) {
+            return sections.containsKey(field);
+        }
+    }
+}
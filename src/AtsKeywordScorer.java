@@ -0,0 +1,165 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Deterministic, in-process ATS score used to pre-rank a pool before any AI call. Keywords from a
+// category dictionary are matched in one pass with an Aho-Corasick automaton; section, contact and
+// quantified-achievement detectors make up the rest of the score.
+//
+// Score out of 100: keyword coverage 50, sections 30, contact details and content 20.
+class AtsKeywordScorer {
+
+    private static final Pattern EMAIL = Pattern.compile("[\\w.+-]+@[\\w-]+\\.[\\w.]+");
+    private static final Pattern PHONE = Pattern.compile("\\+?\\d[\\d ()\\-.]{7,}\\d");
+    private static final Pattern QUANTIFIED = Pattern.compile("\\d+(?:\\.\\d+)?\\s?%|[$€£]\\s?\\d|\\b\\d+\\+?\\s(?:users|clients|customers|people|projects|engineers|members|years)\\b", Pattern.CASE_INSENSITIVE);
+    // Distinct keywords a category needs before it counts as fully covered
+    private static final int CATEGORY_TARGET = 5;
+
+    private final Map<String, List<String>> dictionary;
+    private final AhoCorasick matcher;
+    private final String[] patternCategory;
+
+    AtsKeywordScorer(Map<String, List<String>> dictionary) {
+        this.dictionary = dictionary;
+        List<String> patterns = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+        for (Map.Entry<String, List<String>> category : dictionary.entrySet()) {
+            for (String term : category.getValue()) {
+                patterns.add(term);
+                categories.add(category.getKey());
+            }
+        }
+        this.matcher = new AhoCorasick(patterns);
+        this.patternCategory = categories.toArray(new String[0]);
+    }
+
+    // Uses the dictionary file named by resume.ats.dictionary if set, otherwise the built-in one
+    static AtsKeywordScorer fromSystemProperties() {
+        String path = System.getProperty("resume.ats.dictionary");
+        if (path != null && !path.isEmpty()) {
+            try {
+                return new AtsKeywordScorer(loadDictionary(new File(path)));
+            } catch (IOException e) {
+                System.err.println("Could not read ATS dictionary " + path + ", using the built-in one: " + e.getMessage());
+            }
+        }
+        return new AtsKeywordScorer(defaultDictionary());
+    }
+
+    // One category per line as "category: term, term, term"; blank lines and # comments are ignored
+    static Map<String, List<String>> loadDictionary(File file) throws IOException {
+        Map<String, List<String>> dictionary = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            int colon = trimmed.indexOf(':');
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || colon <= 0) {
+                continue;
+            }
+            List<String> terms = dictionary.computeIfAbsent(trimmed.substring(0, colon).trim(), k -> new ArrayList<>());
+            for (String term : trimmed.substring(colon + 1).split(",")) {
+                if (!term.trim().isEmpty()) {
+                    terms.add(term.trim());
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    static Map<String, List<String>> defaultDictionary() {
+        Map<String, List<String>> dictionary = new LinkedHashMap<>();
+        dictionary.put("Technical Skills", Arrays.asList("java", "python", "javascript", "typescript", "c++", "c#", "go", "kotlin", "sql",
+                "html", "css", "react", "angular", "node.js", "spring", "django", "aws", "azure", "gcp", "docker", "kubernetes",
+                "git", "linux", "rest", "microservices", "machine learning", "data analysis", "excel", "tableau", "power bi"));
+        dictionary.put("Soft Skills", Arrays.asList("leadership", "communication", "teamwork", "collaboration", "problem solving",
+                "time management", "critical thinking", "adaptability", "mentoring", "stakeholder"));
+        dictionary.put("Action Verbs", Arrays.asList("led", "managed", "developed", "designed", "implemented", "built", "created",
+                "improved", "increased", "reduced", "delivered", "launched", "optimized", "automated", "coordinated", "achieved"));
+        dictionary.put("Credentials", Arrays.asList("bachelor", "master", "phd", "degree", "certified", "certification", "gpa",
+                "university", "college", "diploma"));
+        return dictionary;
+    }
+
+    Result score(String text) {
+        int[] hits = matcher.countMatches(text);
+        Map<String, List<String>> matched = new LinkedHashMap<>();
+        for (String category : dictionary.keySet()) {
+            matched.put(category, new ArrayList<>());
+        }
+        for (int p = 0; p < hits.length; p++) {
+            if (hits[p] > 0) {
+                List<String> terms = matched.get(patternCategory[p]);
+                if (!terms.contains(matcher.pattern(p))) {
+                    terms.add(matcher.pattern(p));
+                }
+            }
+        }
+
+        double coverage = 0;
+        for (List<String> terms : matched.values()) {
+            coverage += Math.min(1.0, terms.size() / (double) CATEGORY_TARGET);
+        }
+        int keywordPoints = dictionary.isEmpty() ? 0 : (int) Math.round(50 * coverage / dictionary.size());
+
+        Map<String, String> sections = ResumeSections.split(text);
+        int sectionPoints = (sections.containsKey("experience") ? 10 : 0)
+                + (sections.containsKey("education") ? 8 : 0)
+                + (sections.containsKey("skills") ? 8 : 0)
+                + (sections.containsKey("summary") || sections.containsKey("projects") ? 4 : 0);
+
+        boolean hasEmail = EMAIL.matcher(text).find();
+        boolean hasPhone = PHONE.matcher(text).find();
+        boolean quantified = QUANTIFIED.matcher(text).find();
+        int length = text.trim().length();
+        boolean reasonableLength = length >= 800 && length <= 12_000;
+        int contentPoints = (hasEmail ? 5 : 0) + (hasPhone ? 5 : 0) + (quantified ? 5 : 0) + (reasonableLength ? 5 : 0);
+
+        List<String> detectedSections = new ArrayList<>(sections.keySet());
+        detectedSections.remove(ResumeSections.HEADER);
+        return new Result(keywordPoints + sectionPoints + contentPoints, matched, detectedSections,
+                hasEmail, hasPhone, quantified, reasonableLength);
+    }
+
+    static final class Result {
+        final int score;
+        final Map<String, List<String>> matchedKeywords;
+        final List<String> sections;
+        final boolean hasEmail;
+        final boolean hasPhone;
+        final boolean hasQuantifiedAchievements;
+        final boolean reasonableLength;
+
+        Result(int score, Map<String, List<String>> matchedKeywords, List<String> sections, boolean hasEmail,
+               boolean hasPhone, boolean hasQuantifiedAchievements, boolean reasonableLength) {
+            this.score = Math.max(0, Math.min(100, score));
+            this.matchedKeywords = matchedKeywords;
+            this.sections = sections;
+            this.hasEmail = hasEmail;
+            this.hasPhone = hasPhone;
+            this.hasQuantifiedAchievements = hasQuantifiedAchievements;
+            this.reasonableLength = reasonableLength;
+        }
+
+        // Same layout as the AI analysis so both can be shown and exported side by side
+        String describe() {
+            StringBuilder text = new StringBuilder();
+            text.append("ATS COMPATIBILITY SCORE: ").append(score).append("\n");
+            text.append("ATS COMPATIBILITY DETAILS: Local keyword scan").append(hasEmail ? "" : ", no email found")
+                    .append(hasPhone ? "" : ", no phone number found")
+                    .append(hasQuantifiedAchievements ? "" : ", no quantified achievements").append("\n");
+            text.append("SECTIONS: ").append(sections.isEmpty() ? "No standard section headings detected" : String.join(", ", sections)).append("\n");
+            text.append("ATS Keyword Matches:\n");
+            for (Map.Entry<String, List<String>> category : matchedKeywords.entrySet()) {
+                text.append("- ").append(category.getKey()).append(": ")
+                        .append(category.getValue().isEmpty() ? "none" : String.join(", ", category.getValue())).append("\n");
+            }
+            return text.toString().trim();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// One chatbot conversation about one resume. The resume is compacted once, when the session starts,
+// and sent with the first turn only: later turns carry just the new message and the conversation id,
+// and the API keeps the history. When the API cannot keep it (server history disabled, or the
+// conversation was lost) the session sends the resume with a sliding window of recent turns, older
+// turns folded into a short summary so the request stays the same size however long the chat runs.
+// Only that window and summary are held in memory; the full conversation is in the result store.
+class ChatSession {
+
+    static final String PREAMBLE = "You are a career advisor answering questions about the resume the user shares with you. " +
+            "Base your answers on that resume and the conversation so far, and say so when the resume does not contain the answer.";
+    // Characters kept of each side of a turn once it has been folded into the summary
+    private static final int SUMMARY_TURN_CHARS = 200;
+
+    private final String resumeHash;
+    private final String context;
+    private final int windowTurns;
+    private final int summaryTokens;
+    // Guards the state below. The engine also holds it for the whole request so a session's turns
+    // reach the API in order; it is reentrant, so the methods here take it as well.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Turn> recent = new ArrayDeque<>();
+    private final Deque<String> summary = new ArrayDeque<>();
+    private int turnCount;
+    private String conversationId = UUID.randomUUID().toString();
+    private boolean contextSent;
+
+    ChatSession(String resumeHash, String context, int windowTurns, int summaryTokens) {
+        this.resumeHash = resumeHash;
+        this.context = context;
+        this.windowTurns = Math.max(1, windowTurns);
+        this.summaryTokens = Math.max(0, summaryTokens);
+    }
+
+    String getResumeHash() {
+        return resumeHash;
+    }
+
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    // Turns so far, including those only kept in the summary
+    int getTurnCount() {
+        lock.lock();
+        try {
+            return turnCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The chat request for the next message. With server history the resume (and, after a restart, the
+    // summary and recent turns) only goes in the first message of a conversation. It stays in the
+    // message rather than in "documents" because the API keeps a conversation's messages but not its
+    // documents, so follow-ups would lose the resume. Without server history every request carries
+    // the resume anyway, and it goes in "documents" with the turns in chat_history.
+    JSONObject request(String message, boolean serverHistory, int maxTokens) {
+        lock.lock();
+        try {
+            JSONObject body = new JSONObject();
+            body.put("model", "command");
+            body.put("max_tokens", maxTokens);
+            if (serverHistory) {
+                body.put("preamble", PREAMBLE);
+                body.put("conversation_id", conversationId);
+                body.put("message", contextSent ? message : seed() + "QUESTION:\n" + message);
+                return body;
+            }
+            body.put("preamble", summary.isEmpty() ? PREAMBLE : PREAMBLE + "\n\nEARLIER IN THIS CONVERSATION:\n" + String.join("\n", summary));
+            body.put("message", message);
+            body.put("documents", new JSONArray().put(new JSONObject().put("id", "resume").put("title", "Resume").put("text", context)));
+            JSONArray history = new JSONArray();
+            for (Turn turn : recent) {
+                history.put(new JSONObject().put("role", "USER").put("message", turn.message));
+                history.put(new JSONObject().put("role", "CHATBOT").put("message", turn.reply));
+            }
+            body.put("chat_history", history);
+            return body;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Records a completed turn; with server history it also marks the resume as delivered
+    void record(String message, String reply, boolean serverHistory) {
+        lock.lock();
+        try {
+            turnCount++;
+            recent.addLast(new Turn(message, reply));
+            if (recent.size() > windowTurns) {
+                fold(recent.removeFirst());
+            }
+            if (serverHistory) {
+                contextSent = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replays turns kept from an earlier session. They reach the API the way a restarted
+    // conversation's do: summary and recent turns go with the resume in the first message.
+    void restore(List<Turn> earlier) {
+        for (Turn turn : earlier) {
+            record(turn.message, turn.reply, false);
+        }
+    }
+
+    // The API no longer has the conversation: start a new one that is seeded from local history
+    void restart() {
+        lock.lock();
+        try {
+            conversationId = UUID.randomUUID().toString();
+            contextSent = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String seed() {
+        StringBuilder seed = new StringBuilder("RESUME:\n").append(context).append("\n\n");
+        if (!summary.isEmpty() || !recent.isEmpty()) {
+            seed.append("EARLIER IN THIS CONVERSATION:\n");
+            for (String line : summary) {
+                seed.append(line).append('\n');
+            }
+            for (Turn turn : recent) {
+                seed.append("User: ").append(turn.message).append("\nAdvisor: ").append(turn.reply).append('\n');
+            }
+            seed.append('\n');
+        }
+        return seed.toString();
+    }
+
+    // A turn that slid out of the window is kept as one short line; the oldest lines go once the
+    // summary is over its token budget
+    private void fold(Turn turn) {
+        summary.addLast("- Asked: " + clip(turn.message) + " Answered: " + clip(firstSentence(turn.reply)));
+        int tokens = 0;
+        for (String line : summary) {
+            tokens += PromptCompactor.estimateTokens(line);
+        }
+        while (tokens > summaryTokens && !summary.isEmpty()) {
+            tokens -= PromptCompactor.estimateTokens(summary.removeFirst());
+        }
+    }
+
+    private static String firstSentence(String text) {
+        int end = text.indexOf(". ");
+        return end < 0 ? text : text.substring(0, end + 1);
+    }
+
+    private static String clip(String text) {
+        String line = text.replace('\n', ' ').trim();
+        return line.length() <= SUMMARY_TURN_CHARS ? line : line.substring(0, SUMMARY_TURN_CHARS) + "...";
+    }
+
+    static final class Turn {
+        final String message;
+        final String reply;
+
+        Turn(String message, String reply) {
+            this.message = message;
+            this.reply = reply;
+        }
+    }
+}
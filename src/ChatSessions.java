@@ -0,0 +1,62 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Chat sessions by resume content hash, least recently used dropped first. A re-uploaded or renamed
+// resume with the same content continues its conversation, also after a restart: turns are kept in the
+// result store and replayed when the session is next opened.
+class ChatSessions {
+
+    private final int windowTurns;
+    private final int summaryTokens;
+    private final boolean serverHistory;
+    private final ResultStore resultStore;
+    private final Map<String, ChatSession> sessions;
+
+    ChatSessions(int maxSessions, int windowTurns, int summaryTokens, boolean serverHistory, ResultStore resultStore) {
+        this.windowTurns = windowTurns;
+        this.summaryTokens = summaryTokens;
+        this.serverHistory = serverHistory;
+        this.resultStore = resultStore;
+        this.sessions = new LinkedHashMap<String, ChatSession>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatSession> eldest) {
+                return size() > Math.max(1, maxSessions);
+            }
+        };
+    }
+
+    // resume.chat.sessions, resume.chat.window, resume.chat.summary.tokens and cohere.chat.server.history
+    static ChatSessions fromSystemProperties(ResultStore resultStore) {
+        return new ChatSessions(
+                Integer.getInteger("resume.chat.sessions", 100),
+                Integer.getInteger("resume.chat.window", 6),
+                Integer.getInteger("resume.chat.summary.tokens", 300),
+                Boolean.parseBoolean(System.getProperty("cohere.chat.server.history", "true")),
+                resultStore);
+    }
+
+    boolean isServerHistory() {
+        return serverHistory;
+    }
+
+    // The resume context is built by compactContext only when a session is created
+    synchronized ChatSession get(ResumeDocument document, Function<String, String> compactContext) {
+        return sessions.computeIfAbsent(document.getContentHash(), hash -> {
+            ChatSession session = new ChatSession(hash, compactContext.apply(document.getText()), windowTurns, summaryTokens);
+            session.restore(resultStore.chat(hash));
+            return session;
+        });
+    }
+
+    // Keeps a completed turn for the next run
+    void save(ChatSession session, ChatSession.Turn turn) {
+        resultStore.addChatTurn(session.getResumeHash(), turn);
+    }
+
+    // Forgets the conversation so the next message starts a new one
+    synchronized void reset(ResumeDocument document) {
+        sessions.remove(document.getContentHash());
+        resultStore.resetChat(document.getContentHash());
+    }
+}
@@ -0,0 +1,246 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Shared transport for every Cohere call. A single HttpClient keeps connections alive between
+// requests and negotiates HTTP/2 when the server offers it, so calls after the first skip the TLS
+// handshake. Point cohere.base.url at a local stub server to exercise it without the real API.
+class CohereClient {
+
+    static final String DEFAULT_BASE_URL = "https://api.cohere.ai/v1";
+    static final String GENERATE_PATH = "/generate";
+    static final String CHAT_PATH = "/chat";
+
+    private static final Metrics.Histogram ROUND_TRIP = Metrics.histogram("http.roundtrip");
+    private static final Metrics.Histogram STREAM = Metrics.histogram("http.stream");
+    private static final LongAdder BYTES_SENT = Metrics.counter("bytes.sent");
+    private static final LongAdder BYTES_RECEIVED = Metrics.counter("bytes.received");
+    private static final LongAdder HTTP_ERRORS = Metrics.counter("errors.http");
+    private static final LongAdder IO_ERRORS = Metrics.counter("errors.io");
+
+    private final HttpClient httpClient;
+    private final String apiKey;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    CohereClient(String apiKey, String baseUrl, Duration connectTimeout, Duration requestTimeout) {
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    // cohere.base.url, cohere.connect.timeout.seconds and cohere.request.timeout.seconds
+    static CohereClient fromSystemProperties(String apiKey) {
+        return new CohereClient(apiKey,
+                System.getProperty("cohere.base.url", DEFAULT_BASE_URL),
+                Duration.ofSeconds(Long.getLong("cohere.connect.timeout.seconds", 10)),
+                Duration.ofSeconds(Long.getLong("cohere.request.timeout.seconds", 60)));
+    }
+
+    // Blocking POST to the generate endpoint; returns the raw JSON body
+    String generate(JSONObject body) throws IOException, InterruptedException {
+        return post(GENERATE_PATH, body);
+    }
+
+    String streamGenerate(JSONObject body, Consumer<String> onText) throws IOException, InterruptedException {
+        return stream(GENERATE_PATH, body, onText);
+    }
+
+    // Blocking POST to the chat endpoint; returns the raw JSON body
+    String chat(JSONObject body) throws IOException, InterruptedException {
+        return post(CHAT_PATH, body);
+    }
+
+    String streamChat(JSONObject body, Consumer<String> onText) throws IOException, InterruptedException {
+        return stream(CHAT_PATH, body, onText);
+    }
+
+    // Sends the request with "stream": true and hands each text fragment to onText as soon as its line
+    // arrives. Understands Cohere's newline-delimited JSON events as well as SSE-style "data:" lines.
+    // Returns the concatenated text once the stream ends. The body is read through an interruptible
+    // channel, so cancelling the calling thread closes the connection even while a read is blocked.
+    String stream(String path, JSONObject body, Consumer<String> onText) throws IOException, InterruptedException {
+        JSONObject streamingBody = new JSONObject(body.toString());
+        streamingBody.put("stream", true);
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response = send(buildRequest(path, streamingBody), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            HTTP_ERRORS.increment();
+            try (InputStream errorBody = new CountingInputStream(response.body())) {
+                throw new ApiException(response.statusCode(), new String(errorBody.readAllBytes(), StandardCharsets.UTF_8), retryAfterMillis(response));
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(Channels.newChannel(new CountingInputStream(response.body()))), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Stream cancelled");
+                }
+                String fragment;
+                try {
+                    fragment = streamFragment(line);
+                } catch (JSONException e) {
+                    throw new IOException("Malformed stream event: " + line, e);
+                }
+                if (fragment != null && !fragment.isEmpty()) {
+                    text.append(fragment);
+                    onText.accept(fragment);
+                }
+            }
+        } catch (IOException e) {
+            if (!RequestScheduler.isCancellation(e)) {
+                IO_ERRORS.increment();
+            }
+            throw e;
+        } finally {
+            STREAM.recordSince(started);
+        }
+        return text.toString();
+    }
+
+    private static String streamFragment(String line) {
+        String payload = line.trim();
+        if (payload.startsWith("data:")) {
+            payload = payload.substring("data:".length()).trim();
+        }
+        if (!payload.startsWith("{")) {
+            return null;
+        }
+        JSONObject event = new JSONObject(payload);
+        if (event.optBoolean("is_finished", false)) {
+            return null;
+        }
+        // Chat streams interleave other event types (stream-start, search results...) with text
+        if (!"text-generation".equals(event.optString("event_type", "text-generation"))) {
+            return null;
+        }
+        return event.optString("text", null);
+    }
+
+    String post(String path, JSONObject body) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<byte[]> response = send(buildRequest(path, body), HttpResponse.BodyHandlers.ofByteArray());
+        ROUND_TRIP.recordSince(started);
+        return checkStatus(response);
+    }
+
+    HttpRequest buildRequest(String path, JSONObject body) {
+        byte[] json = body.toString().getBytes(StandardCharsets.UTF_8);
+        BYTES_SENT.add(json.length);
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build();
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (IOException e) {
+            IO_ERRORS.increment();
+            throw e;
+        }
+    }
+
+    private static String checkStatus(HttpResponse<byte[]> response) throws ApiException {
+        BYTES_RECEIVED.add(response.body().length);
+        String body = new String(response.body(), StandardCharsets.UTF_8);
+        if (response.statusCode() / 100 != 2) {
+            HTTP_ERRORS.increment();
+            throw new ApiException(response.statusCode(), body, retryAfterMillis(response));
+        }
+        return body;
+    }
+
+    // Retry-After may be given either in seconds or as an HTTP date
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, (long) (Double.parseDouble(retryAfter.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    // Adds the body bytes to bytes.received as they are read, before any decoding
+    private static final class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                BYTES_RECEIVED.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                BYTES_RECEIVED.add(read);
+            }
+            return read;
+        }
+    }
+
+    // Non-2xx reply from the API
+    static class ApiException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+        private final long retryAfterMillis;
+
+        ApiException(int statusCode, String responseBody, long retryAfterMillis) {
+            super("Cohere API responded with HTTP " + statusCode + (responseBody == null || responseBody.isEmpty() ? "" : ": " + responseBody));
+            this.statusCode = statusCode;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Ranked, per-candidate export of a comparison run as <base>.pdf, <base>.csv and <base>.json. The
+// per-resume sections and JSON records are rendered in parallel; the three files are then written
+// concurrently, each streaming entries in rank order so nothing is concatenated up front.
+class ComparisonReportExporter {
+
+    private final int parallelism;
+
+    ComparisonReportExporter(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // resume.export.parallelism (default: number of CPU cores)
+    static ComparisonReportExporter fromSystemProperties() {
+        return new ComparisonReportExporter(Integer.getInteger("resume.export.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Every compared resume, best score first; ties keep comparison order
+    static List<Entry> rank(ResumeAnalysisEngine.Comparison comparison) {
+        List<Map.Entry<File, Integer>> scores = new ArrayList<>(comparison.scores.entrySet());
+        scores.sort(Map.Entry.<File, Integer>comparingByValue().reversed());
+        List<Entry> ranked = new ArrayList<>();
+        for (Map.Entry<File, Integer> score : scores) {
+            ranked.add(new Entry(ranked.size() + 1, score.getKey(), score.getValue(),
+                    comparison.analyses.get(score.getKey()), comparison.grammar.get(score.getKey())));
+        }
+        return ranked;
+    }
+
+    // Writes <base>.pdf, <base>.csv and <base>.json and returns the files written
+    List<File> export(List<Entry> ranked, File base) throws IOException, InterruptedException {
+        String path = base.getPath().replaceAll("\\.(pdf|csv|json)$", "");
+        File pdf = new File(path + ".pdf");
+        File csv = new File(path + ".csv");
+        File json = new File(path + ".json");
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Rendered>> renders = new ArrayList<>();
+            for (Entry entry : ranked) {
+                renders.add(pool.submit(() -> render(entry)));
+            }
+            List<Rendered> rendered = new ArrayList<>();
+            for (Future<Rendered> render : renders) {
+                rendered.add(await(render));
+            }
+
+            List<Future<Void>> writes = new ArrayList<>();
+            writes.add(pool.submit(writer(() -> writePdf(ranked, rendered, pdf))));
+            writes.add(pool.submit(writer(() -> writeCsv(ranked, csv))));
+            writes.add(pool.submit(writer(() -> writeJson(rendered, json))));
+            for (Future<Void> write : writes) {
+                await(write);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        List<File> written = new ArrayList<>();
+        written.add(pdf);
+        written.add(csv);
+        written.add(json);
+        return written;
+    }
+
+    private static Rendered render(Entry entry) {
+        StringBuilder section = new StringBuilder();
+        section.append("ATS Score: ").append(entry.score).append("/100\n");
+        section.append("File: ").append(entry.file.getAbsolutePath()).append("\n\n");
+        section.append(entry.analysis == null ? "No analysis recorded." : entry.analysis.trim()).append("\n");
+        if (entry.grammar != null && !entry.grammar.trim().isEmpty()) {
+            section.append("\nGrammar and Language Quality:\n").append(entry.grammar.trim()).append("\n");
+        }
+
+        JSONObject record = new JSONObject();
+        record.put("rank", entry.rank);
+        record.put("name", entry.file.getName());
+        record.put("path", entry.file.getAbsolutePath());
+        record.put("ats_score", entry.score);
+        record.put("analysis", entry.analysis == null ? "" : entry.analysis);
+        record.put("grammar", entry.grammar == null ? "" : entry.grammar);
+        return new Rendered(section.toString(), record.toString());
+    }
+
+    private static void writePdf(List<Entry> ranked, List<Rendered> rendered, File pdf) throws IOException {
+        try (PdfReportWriter writer = new PdfReportWriter(pdf)) {
+            writer.writeLine("Resume Comparison Report - " + ranked.size() + " resumes");
+            writer.writeLine("");
+            writer.writeLine("--- Ranking (Based on ATS Score) ---");
+            for (Entry entry : ranked) {
+                writer.writeLine("Rank " + entry.rank + ": " + entry.file.getName() + " - ATS Score: " + entry.score + "/100");
+            }
+            writer.writeLine("");
+            for (int i = 0; i < ranked.size(); i++) {
+                writer.writeSection("--- Rank " + ranked.get(i).rank + ": " + ranked.get(i).file.getName() + " ---", rendered.get(i).section);
+            }
+        }
+    }
+
+    private static void writeCsv(List<Entry> ranked, File csv) throws IOException {
+        try (Writer out = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+            out.write("rank,name,path,ats_score\n");
+            for (Entry entry : ranked) {
+                out.write(entry.rank + "," + csvField(entry.file.getName()) + "," + csvField(entry.file.getAbsolutePath()) + "," + entry.score + "\n");
+            }
+        }
+    }
+
+    private static void writeJson(List<Rendered> rendered, File json) throws IOException {
+        try (Writer out = Files.newBufferedWriter(json.toPath(), StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int i = 0; i < rendered.size(); i++) {
+                out.write(rendered.get(i).json);
+                out.write(i + 1 < rendered.size() ? ",\n" : "\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks, doubling embedded quotes
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private interface FileWrite {
+        void write() throws IOException;
+    }
+
+    private static Callable<Void> writer(FileWrite write) {
+        return () -> {
+            write.write();
+            return null;
+        };
+    }
+
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Export failed", e.getCause());
+        }
+    }
+
+    static final class Entry {
+        final int rank;
+        final File file;
+        final int score;
+        final String analysis;
+        final String grammar;
+
+        Entry(int rank, File file, int score, String analysis, String grammar) {
+            this.rank = rank;
+            this.file = file;
+            this.score = score;
+            this.analysis = analysis;
+            this.grammar = grammar;
+        }
+    }
+
+    private static final class Rendered {
+        final String section;
+        final String json;
+
+        Rendered(String section, String json) {
+            this.section = section;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import javax.swing.table.AbstractTableModel;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// One small row per resume of a comparison run, updated in place as results arrive. A JTable only
+// paints the visible rows and each update repaints a single row, so the view costs the same for ten
+// resumes as for ten thousand. The analysis texts are kept on the rows but only rendered, through
+// details(), for the row that is selected.
+class ComparisonTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int NAME = 0;
+    static final int RANK = 1;
+    static final int SCORE = 2;
+    static final int PROBABILITY = 3;
+    static final int STATUS = 4;
+    private static final String[] COLUMNS = {"Resume", "Rank", "ATS Score", "Interview %", "Status"};
+
+    // View state for the running session only; the model is not meant to be serialized
+    private final transient List<Row> rows = new ArrayList<>();
+    private final transient Map<File, Integer> rowByFile = new HashMap<>();
+
+    // Starts a new run with every resume queued
+    void reset(List<File> files) {
+        rows.clear();
+        rowByFile.clear();
+        for (File file : files) {
+            if (!rowByFile.containsKey(file)) {
+                rowByFile.put(file, rows.size());
+                rows.add(new Row(file));
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    // Applies change to the file's row and repaints just that row; unknown files are ignored
+    void update(File file, Consumer<Row> change) {
+        Integer index = rowByFile.get(file);
+        if (index != null) {
+            change.accept(rows.get(index));
+            fireTableRowsUpdated(index, index);
+        }
+    }
+
+    Row getRow(int modelRow) {
+        return rows.get(modelRow);
+    }
+
+    List<Row> getRows() {
+        return rows;
+    }
+
+    // Re-paints every row after a bulk update such as ranking
+    void rowsChanged() {
+        if (!rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    // Numeric columns sort as numbers; missing values are null and sort first
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == RANK || column == SCORE || column == PROBABILITY ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int column) {
+        Row row = rows.get(rowIndex);
+        switch (column) {
+            case NAME:
+                return row.file.getName();
+            case RANK:
+                return row.rank;
+            case SCORE:
+                return row.score;
+            case PROBABILITY:
+                return row.interviewProbability;
+            default:
+                return row.status;
+        }
+    }
+
+    static final class Row {
+        final File file;
+        Integer rank;
+        Integer score;
+        Integer interviewProbability;
+        String status = "Queued";
+        String analysis;
+        String grammar;
+
+        Row(File file) {
+            this.file = file;
+        }
+
+        // Text for the details pane, built only for the selected row
+        String details() {
+            StringBuilder details = new StringBuilder("--- ").append(file.getName()).append(" ---\n");
+            details.append("Status: ").append(status).append('\n');
+            if (score != null) {
+                details.append("ATS Score: ").append(score).append("/100\n");
+            }
+            if (interviewProbability != null) {
+                details.append("Interview Probability: ").append(interviewProbability).append("%\n");
+            }
+            details.append('\n').append(analysis == null ? "No analysis yet." : analysis).append('\n');
+            return details.toString();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Hex-encoded SHA-256 digests used to content-address prompts, resumes and cached results
+final class Hashes {
+
+    private Hashes() {
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String sha256Hex(byte[] data) {
+        return toHex(sha256().digest(data));
+    }
+
+    static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
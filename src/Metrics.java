@@ -0,0 +1,208 @@
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide latency histograms, counters and gauges. Instrumented code looks its histogram or
+// counter up once into a static field, so recording is a nanoTime call and a couple of uncontended
+// atomic adds. Histograms are log-linear like HdrHistogram: 32 sub-buckets per power of two keep
+// percentiles within about 3% from a microsecond up to days, in a fixed array with no locking.
+final class Metrics {
+
+    private static final long STARTED = System.currentTimeMillis();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    // A value read when a snapshot is taken, e.g. a cache size owned by another component
+    static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    // Histograms in milliseconds, then counters and gauges, each sorted by name
+    static JSONObject snapshot() {
+        JSONObject histograms = new JSONObject();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject counters = new JSONObject();
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : new TreeMap<>(GAUGES).entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        JSONObject snapshot = new JSONObject();
+        snapshot.put("uptime_seconds", (System.currentTimeMillis() - STARTED) / 1000);
+        snapshot.put("latency_ms", histograms);
+        snapshot.put("counters", counters);
+        return snapshot;
+    }
+
+    // Plain-text table of the snapshot, for the GUI metrics window
+    static String describe() {
+        StringBuilder text = new StringBuilder(String.format("%-22s %8s %9s %9s %9s %9s %9s%n", "stage (ms)", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            Histogram h = entry.getValue();
+            text.append(String.format("%-22s %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), h.getCount(), h.getMeanMillis(),
+                    h.percentileMillis(50), h.percentileMillis(90), h.percentileMillis(99), h.getMaxMillis()));
+        }
+        text.append('\n');
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, adder) -> values.put(name, adder.sum()));
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            text.append(String.format("%-32s %12d%n", entry.getKey(), entry.getValue()));
+        }
+        return text.toString();
+    }
+
+    // resume.metrics.file and resume.metrics.interval.seconds (default 60): when a file is set, the
+    // snapshot is rewritten there on that interval and once more at exit
+    static synchronized void startDumpFromSystemProperties() {
+        String path = System.getProperty("resume.metrics.file");
+        if (path == null || path.isEmpty() || dumper != null) {
+            return;
+        }
+        File file = new File(path);
+        long interval = Math.max(1, Long.getLong("resume.metrics.interval.seconds", 60));
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file), interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(file)));
+    }
+
+    // Written beside the target and moved into place so readers never see a partial file
+    static void dump(File file) {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            Files.write(temp.toPath(), snapshot().toString(2).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // Values below this are their own bucket; above it each power of two has SUB_BUCKETS buckets
+        private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+        private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS * 2;
+
+        // Counts per bucket of microseconds
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+        void recordNanos(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            buckets.incrementAndGet(index(micros));
+            count.increment();
+            totalMicros.add(micros);
+            maxMicros.accumulate(micros);
+        }
+
+        // Records the time since startedNanos (a System.nanoTime value)
+        void recordSince(long startedNanos) {
+            recordNanos(System.nanoTime() - startedNanos);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalMicros.sum() / 1000.0 / n;
+        }
+
+        double getMaxMillis() {
+            return maxMicros.get() / 1000.0;
+        }
+
+        // Upper bound of the bucket holding the given percentile
+        double percentileMillis(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxMicros.get()) / 1000.0;
+                }
+            }
+            return getMaxMillis();
+        }
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("count", getCount());
+            json.put("mean", round(getMeanMillis()));
+            json.put("p50", round(percentileMillis(50)));
+            json.put("p90", round(percentileMillis(90)));
+            json.put("p99", round(percentileMillis(99)));
+            json.put("p999", round(percentileMillis(99.9)));
+            json.put("max", round(getMaxMillis()));
+            return json;
+        }
+
+        static int index(long micros) {
+            if (micros < LINEAR_LIMIT) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int shift = exponent - SUB_BUCKET_BITS;
+            return shift * SUB_BUCKETS + (int) (micros >>> shift);
+        }
+
+        static long upperBound(int index) {
+            if (index < LINEAR_LIMIT) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((mantissa + 1) << shift) - 1;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 1000) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Writes a report to PDF as it is produced instead of building it in one String first. Lines are
+// wrapped using cached glyph widths, each page is a single text object, and finished page content
+// lives in a PDFBox scratch file rather than on the heap, so memory stays flat however long the
+// report gets. The file is written on close().
+class PdfReportWriter implements Closeable {
+
+    private static final float FONT_SIZE = 12;
+    private static final float LEADING = 14.5f;
+    private static final float MARGIN = 50;
+    // Drawn in place of characters the font cannot encode
+    private static final char REPLACEMENT = '?';
+
+    private final File output;
+    private final PDDocument document;
+    private final PDFont font;
+    private final PDRectangle pageSize = PDRectangle.LETTER;
+    private final float maxLineWidth;
+    // Widths in points at FONT_SIZE; NaN until first needed, negative when the font has no glyph
+    private final float[] latinWidths = new float[256];
+    private final Map<Character, Float> otherWidths = new HashMap<>();
+    private final StringBuilder lineBuffer = new StringBuilder();
+    private PDPageContentStream content;
+    private float y;
+    private int pageCount;
+
+    PdfReportWriter(File output) {
+        this(output, PDType1Font.COURIER);
+    }
+
+    PdfReportWriter(File output, PDFont font) {
+        this.output = output;
+        this.font = font;
+        this.document = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+        this.maxLineWidth = pageSize.getWidth() - 2 * MARGIN;
+        Arrays.fill(latinWidths, Float.NaN);
+    }
+
+    // A heading line, the body, then a blank line
+    void writeSection(String title, CharSequence body) throws IOException {
+        writeLine(title, 0, title.length());
+        writeText(body);
+        writeLine("", 0, 0);
+    }
+
+    // Writes text that may span several lines, without splitting it into an array first
+    void writeText(CharSequence text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                writeLine(text, start, i);
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            writeLine(text, start, text.length());
+        }
+    }
+
+    void writeLine(CharSequence text) throws IOException {
+        writeLine(text, 0, text.length());
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    // Wraps text[start, end) at the last space that fits, or mid-word when a single word is too long
+    private void writeLine(CharSequence text, int start, int end) throws IOException {
+        if (end > start && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        if (start == end) {
+            emit(text, start, end);
+            return;
+        }
+        int lineStart = start;
+        while (lineStart < end) {
+            float width = 0;
+            int lastSpace = -1;
+            int i = lineStart;
+            while (i < end) {
+                float glyph = width(text.charAt(i));
+                if (width + glyph > maxLineWidth && i > lineStart) {
+                    break;
+                }
+                width += glyph;
+                if (text.charAt(i) == ' ') {
+                    lastSpace = i;
+                }
+                i++;
+            }
+            int lineEnd = i < end && lastSpace > lineStart ? lastSpace : i;
+            emit(text, lineStart, lineEnd);
+            lineStart = lineEnd;
+            while (lineStart < end && text.charAt(lineStart) == ' ') {
+                lineStart++;
+            }
+        }
+    }
+
+    private void emit(CharSequence text, int start, int end) throws IOException {
+        if (content == null || y < MARGIN) {
+            startPage();
+        }
+        if (end > start) {
+            lineBuffer.setLength(0);
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i) == '\t' ? ' ' : text.charAt(i);
+                lineBuffer.append(glyphWidth(c) < 0 ? REPLACEMENT : c);
+            }
+            content.showText(lineBuffer.toString());
+        }
+        content.newLine();
+        y -= LEADING;
+    }
+
+    private void startPage() throws IOException {
+        endPage();
+        PDPage page = new PDPage(pageSize);
+        document.addPage(page);
+        content = new PDPageContentStream(document, page);
+        content.setFont(font, FONT_SIZE);
+        content.setLeading(LEADING);
+        content.beginText();
+        y = pageSize.getHeight() - MARGIN;
+        content.newLineAtOffset(MARGIN, y);
+        pageCount++;
+    }
+
+    private void endPage() throws IOException {
+        if (content != null) {
+            content.endText();
+            content.close();
+            content = null;
+        }
+    }
+
+    private float width(char c) throws IOException {
+        float width = glyphWidth(c == '\t' ? ' ' : c);
+        return width < 0 ? glyphWidth(REPLACEMENT) : width;
+    }
+
+    private float glyphWidth(char c) throws IOException {
+        if (c < 256) {
+            float cached = latinWidths[c];
+            if (Float.isNaN(cached)) {
+                cached = measure(c);
+                latinWidths[c] = cached;
+            }
+            return cached;
+        }
+        Float cached = otherWidths.get(c);
+        if (cached == null) {
+            cached = measure(c);
+            otherWidths.put(c, cached);
+        }
+        return cached;
+    }
+
+    private float measure(char c) throws IOException {
+        try {
+            return font.getStringWidth(String.valueOf(c)) / 1000 * FONT_SIZE;
+        } catch (IllegalArgumentException e) {
+            // Standard 14 fonts only cover WinAnsiEncoding
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (content == null) {
+                // An empty report still gets one blank page so the file is a valid PDF
+                startPage();
+            }
+            endPage();
+            document.save(output);
+        } finally {
+            document.close();
+        }
+    }
+}
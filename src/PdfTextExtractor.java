@@ -0,0 +1,183 @@
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// PDF text extraction for single uploads and bulk ingestion. Each document may keep at most
+// maxMainMemoryBytes on the heap (PDFBox spills the rest to a scratch file), pages are stripped one at
+// a time and stripping stops once maxChars have been read, since nothing past that is ever used.
+class PdfTextExtractor {
+
+    private static final Metrics.Histogram PDF_LOAD = Metrics.histogram("pdf.load");
+    private static final Metrics.Histogram TEXT_STRIP = Metrics.histogram("pdf.strip");
+    private static final LongAdder PDF_ERRORS = Metrics.counter("errors.pdf");
+
+    private final int maxChars;
+    private final long maxMainMemoryBytes;
+    private final int parallelism;
+
+    PdfTextExtractor(int maxChars, long maxMainMemoryBytes, int parallelism) {
+        this.maxChars = maxChars;
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // resume.pdf.max.chars, resume.pdf.max.memory.mb and resume.ingest.parallelism
+    static PdfTextExtractor fromSystemProperties() {
+        return new PdfTextExtractor(
+                Integer.getInteger("resume.pdf.max.chars", 20_000),
+                Long.getLong("resume.pdf.max.memory.mb", 16) * 1024 * 1024,
+                Integer.getInteger("resume.ingest.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    String extract(File file) throws IOException {
+        long started = System.nanoTime();
+        try (PDDocument document = PDDocument.load(file, MemoryUsageSetting.setupMixed(maxMainMemoryBytes))) {
+            PDF_LOAD.recordSince(started);
+            long stripStarted = System.nanoTime();
+            PDFTextStripper stripper = new PDFTextStripper();
+            StringBuilder text = new StringBuilder();
+            int pages = document.getNumberOfPages();
+            for (int page = 1; page <= pages && text.length() < maxChars; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                text.append(stripper.getText(document));
+            }
+            String extracted = text.length() > maxChars ? text.substring(0, maxChars) : text.toString();
+            TEXT_STRIP.recordSince(stripStarted);
+            return extracted;
+        } catch (IOException | RuntimeException e) {
+            PDF_ERRORS.increment();
+            throw e;
+        }
+    }
+
+    // Extracts every file on a pool sized to the configured parallelism. onResult is called from the
+    // worker threads as each file finishes, with its text (null if it failed); the text is not kept
+    // afterwards. Only a couple of files per thread are queued at a time, so memory stays flat however
+    // many files there are. The report lists results in the order the files were given.
+    IngestReport extractAll(List<File> files, BiConsumer<IngestResult, String> onResult) throws InterruptedException {
+        return extractAll(files, this::extract, onResult);
+    }
+
+    // Same, with text obtained through extractor, e.g. one that reuses text kept from an earlier run
+    IngestReport extractAll(List<File> files, ResumeStore.TextExtractor extractor, BiConsumer<IngestResult, String> onResult) throws InterruptedException {
+        long started = System.nanoTime();
+        int threads = Math.min(parallelism, Math.max(1, files.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore permits = new Semaphore(threads * 2);
+        IngestResult[] results = new IngestResult[files.size()];
+        AtomicReference<Throwable> callbackFailure = new AtomicReference<>();
+        try {
+            for (int i = 0; i < files.size() && callbackFailure.get() == null; i++) {
+                int index = i;
+                File file = files.get(i);
+                permits.acquire();
+                pool.execute(() -> {
+                    try {
+                        long fileStarted = System.nanoTime();
+                        String text = null;
+                        Exception error = null;
+                        try {
+                            text = extractor.extract(file);
+                        } catch (Exception e) {
+                            error = e;
+                        }
+                        results[index] = new IngestResult(file, error, elapsedMillis(fileStarted));
+                        onResult.accept(results[index], text);
+                    } catch (RuntimeException | Error e) {
+                        callbackFailure.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (callbackFailure.get() != null) {
+                throw new IllegalStateException("Extraction callback failed", callbackFailure.get());
+            }
+            return new IngestReport(Arrays.asList(results), elapsedMillis(started));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Expands directories (recursively) into the PDFs they contain; plain files are kept as given
+    static List<File> collectPdfs(List<File> selection) throws IOException {
+        List<File> pdfs = new ArrayList<>();
+        for (File selected : selection) {
+            if (selected.isDirectory()) {
+                try (Stream<Path> paths = Files.walk(selected.toPath())) {
+                    pdfs.addAll(paths.filter(Files::isRegularFile)
+                            .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                pdfs.add(selected);
+            }
+        }
+        return pdfs;
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+
+    static final class IngestResult {
+        final File file;
+        final Exception error;
+        final long millis;
+
+        IngestResult(File file, Exception error, long millis) {
+            this.file = file;
+            this.error = error;
+            this.millis = millis;
+        }
+
+        boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    static final class IngestReport {
+        final List<IngestResult> results;
+        final long totalMillis;
+
+        IngestReport(List<IngestResult> results, long totalMillis) {
+            this.results = Collections.unmodifiableList(results);
+            this.totalMillis = totalMillis;
+        }
+
+        long failureCount() {
+            return results.stream().filter(result -> !result.isSuccess()).count();
+        }
+
+        String summary() {
+            long failures = failureCount();
+            long slowest = results.stream().mapToLong(result -> result.millis).max().orElse(0);
+            return "Extracted " + (results.size() - failures) + " of " + results.size() + " PDFs in " + totalMillis + " ms"
+                    + (failures > 0 ? " (" + failures + " failed)" : "") + ", slowest file " + slowest + " ms";
+        }
+    }
+}
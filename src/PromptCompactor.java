@@ -0,0 +1,301 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Fits resume text into a per-task token budget before it is put into a prompt. The text is cleaned
+// of PDF noise (page numbers, running headers, broken hyphenation, stray whitespace), split into
+// sections, and when it is still over budget each section gets a share weighted by how much it
+// matters to the task. Sections are cut at line boundaries, so long resumes keep the start of every
+// relevant section instead of losing everything after the first 4000 characters.
+class PromptCompactor {
+
+    enum Task {
+        ATS, GRAMMAR, PROBABILITY, COMBINED, CHAT
+    }
+
+    private static final Pattern HYPHENATED_BREAK = Pattern.compile("(\\p{Ll})-\\n(\\p{Ll})");
+    private static final Pattern PAGE_NUMBER = Pattern.compile("(?i)(page\\s*)?\\d{1,3}(\\s*(of|/)\\s*\\d{1,3})?");
+    private static final Pattern BULLET = Pattern.compile("^[•●▪◦■□➢►‣⁃*]\\s*");
+    // A line repeated this often is a running header or footer rather than content
+    private static final int REPEATED_LINE_LIMIT = 3;
+    // Section weights per task; unlisted sections weigh 1
+    private static final Map<Task, Map<String, Integer>> WEIGHTS = new EnumMap<>(Task.class);
+
+    static {
+        weights(Task.ATS, "skills", 5, "experience", 5, "summary", 3, "header", 3, "education", 3, "certifications", 3, "projects", 3);
+        weights(Task.PROBABILITY, "experience", 5, "skills", 4, "summary", 3, "education", 3, "projects", 3, "header", 2, "certifications", 2, "awards", 2);
+        weights(Task.GRAMMAR, "summary", 5, "experience", 5, "projects", 4, "volunteer", 2, "publications", 2, "header", 1, "skills", 1);
+        weights(Task.COMBINED, "skills", 5, "experience", 5, "summary", 4, "header", 3, "education", 3, "certifications", 3, "projects", 3);
+        weights(Task.CHAT, "experience", 3, "skills", 3, "summary", 2, "education", 2, "projects", 2, "header", 2);
+    }
+
+    private static final Metrics.Histogram PROMPT_BUILD = Metrics.histogram("prompt.build");
+
+    private final Map<Task, Integer> budgets;
+
+    PromptCompactor(Map<Task, Integer> budgets) {
+        this.budgets = new EnumMap<>(budgets);
+    }
+
+    // resume.prompt.tokens.ats, .grammar, .probability, .combined and .chat: estimated tokens of resume
+    // text each kind of prompt may carry (defaults 1000, 900, 700, 1200 and 1500)
+    static PromptCompactor fromSystemProperties() {
+        Map<Task, Integer> budgets = new EnumMap<>(Task.class);
+        budgets.put(Task.ATS, Integer.getInteger("resume.prompt.tokens.ats", 1000));
+        budgets.put(Task.GRAMMAR, Integer.getInteger("resume.prompt.tokens.grammar", 900));
+        budgets.put(Task.PROBABILITY, Integer.getInteger("resume.prompt.tokens.probability", 700));
+        budgets.put(Task.COMBINED, Integer.getInteger("resume.prompt.tokens.combined", 1200));
+        budgets.put(Task.CHAT, Integer.getInteger("resume.prompt.tokens.chat", 1500));
+        return new PromptCompactor(budgets);
+    }
+
+    private static void weights(Task task, Object... sectionWeights) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < sectionWeights.length; i += 2) {
+            weights.put((String) sectionWeights[i], (Integer) sectionWeights[i + 1]);
+        }
+        WEIGHTS.put(task, weights);
+    }
+
+    int getBudget(Task task) {
+        return budgets.get(task);
+    }
+
+    String compact(String resumeText, Task task) {
+        long started = System.nanoTime();
+        try {
+            return pack(resumeText, task);
+        } finally {
+            PROMPT_BUILD.recordSince(started);
+        }
+    }
+
+    private String pack(String resumeText, Task task) {
+        String text = normalize(resumeText);
+        int budget = budgets.get(task);
+        if (estimateTokens(text) <= budget) {
+            return text;
+        }
+
+        Map<String, String> sections = ResumeSections.split(text);
+        List<Section> parts = new ArrayList<>();
+        int remaining = budget;
+        for (Map.Entry<String, String> entry : sections.entrySet()) {
+            Section section = new Section(entry.getKey(), entry.getValue(), WEIGHTS.get(task).getOrDefault(entry.getKey(), 1));
+            remaining -= estimateTokens(section.heading());
+            parts.add(section);
+        }
+        allocate(parts, Math.max(0, remaining));
+
+        StringBuilder compacted = new StringBuilder(Math.min(text.length(), budget * 4));
+        for (Section section : parts) {
+            String body = section.fit();
+            if (body.isEmpty()) {
+                continue;
+            }
+            if (compacted.length() > 0) {
+                compacted.append("\n\n");
+            }
+            compacted.append(section.heading()).append(body);
+        }
+        return compacted.toString();
+    }
+
+    // Weighted max-min fair split: every section gets up to its weighted share, and whatever a small
+    // section does not need is shared out again among the sections that still want more
+    private static void allocate(List<Section> sections, int budget) {
+        int remaining = budget;
+        while (remaining > 0) {
+            int totalWeight = 0;
+            for (Section section : sections) {
+                if (section.wanted() > 0) {
+                    totalWeight += section.weight;
+                }
+            }
+            if (totalWeight == 0) {
+                return;
+            }
+            int granted = 0;
+            for (Section section : sections) {
+                if (section.wanted() > 0) {
+                    int grant = Math.min(section.wanted(), Math.max(1, (int) ((long) remaining * section.weight / totalWeight)));
+                    grant = Math.min(grant, remaining - granted);
+                    section.allocated += grant;
+                    granted += grant;
+                }
+            }
+            if (granted == 0) {
+                return;
+            }
+            remaining -= granted;
+        }
+    }
+
+    // Line endings, ligatures and odd spaces unified; hyphenation across line breaks rejoined; bullets
+    // made plain; page numbers, running headers/footers and blank-line runs removed
+    static String normalize(String text) {
+        StringBuilder cleaned = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    continue;
+                }
+                cleaned.append('\n');
+            } else if (c == '\uFB01') {
+                cleaned.append("fi");
+            } else if (c == '\uFB02') {
+                cleaned.append("fl");
+            } else if (c == '\u00AD' || c == '\u200B' || c == '\uFEFF' || (Character.isISOControl(c) && c != '\n' && c != '\t')) {
+                // soft hyphens, zero-width characters and control codes left over from extraction
+            } else if (Character.isSpaceChar(c) || c == '\t') {
+                cleaned.append(' ');
+            } else {
+                cleaned.append(c);
+            }
+        }
+
+        String[] lines = HYPHENATED_BREAK.matcher(cleaned).replaceAll("$1$2").split("\n");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = collapseSpaces(lines[i]);
+            if (!lines[i].isEmpty() && lines[i].length() <= 80) {
+                counts.merge(lines[i], 1, Integer::sum);
+            }
+        }
+
+        StringBuilder normalized = new StringBuilder(cleaned.length());
+        Set<String> repeatedSeen = new HashSet<>();
+        boolean blank = true;
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                if (!blank) {
+                    normalized.append('\n');
+                    blank = true;
+                }
+                continue;
+            }
+            if (PAGE_NUMBER.matcher(line).matches()) {
+                continue;
+            }
+            if (counts.getOrDefault(line, 0) >= REPEATED_LINE_LIMIT && ResumeSections.canonicalHeading(line) == null && !repeatedSeen.add(line)) {
+                continue;
+            }
+            normalized.append(BULLET.matcher(line).replaceFirst("- ")).append('\n');
+            blank = false;
+        }
+        return normalized.toString().trim();
+    }
+
+    private static String collapseSpaces(String line) {
+        StringBuilder collapsed = new StringBuilder(line.length());
+        boolean space = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                space = collapsed.length() > 0;
+            } else {
+                if (space) {
+                    collapsed.append(' ');
+                    space = false;
+                }
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+
+    // Local estimate of a BPE tokenizer's count: a token per short word, more for long words and
+    // digit runs, one per punctuation mark. Close enough to budget prompts without a vocabulary.
+    static int estimateTokens(CharSequence text) {
+        int tokens = 0;
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isLetter(c)) {
+                int start = i;
+                while (i < text.length() && Character.isLetter(text.charAt(i))) {
+                    i++;
+                }
+                tokens += 1 + (i - start - 1) / 6;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < text.length() && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += 1 + (i - start - 1) / 3;
+            } else {
+                if (!Character.isWhitespace(c)) {
+                    tokens++;
+                }
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Section {
+        final String name;
+        final String body;
+        final int weight;
+        final int tokens;
+        int allocated;
+
+        Section(String name, String body, int weight) {
+            this.name = name;
+            this.body = body;
+            this.weight = weight;
+            this.tokens = estimateTokens(body);
+        }
+
+        int wanted() {
+            return tokens - allocated;
+        }
+
+        String heading() {
+            return ResumeSections.HEADER.equals(name) ? "" : name.toUpperCase(Locale.ROOT) + "\n";
+        }
+
+        // Whole lines while they fit; a line is only cut mid-way (at a word) when not even the
+        // section's first line fits
+        String fit() {
+            if (allocated >= tokens) {
+                return body;
+            }
+            StringBuilder kept = new StringBuilder();
+            int used = 0;
+            for (String line : body.split("\n")) {
+                int cost = estimateTokens(line);
+                if (used + cost <= allocated) {
+                    kept.append(line).append('\n');
+                    used += cost;
+                } else {
+                    if (kept.length() == 0) {
+                        kept.append(cutAtWord(line, allocated));
+                    }
+                    break;
+                }
+            }
+            return kept.toString().trim();
+        }
+
+        private static String cutAtWord(String line, int budget) {
+            int used = 0;
+            int end = 0;
+            for (String word : line.split(" ")) {
+                used += estimateTokens(word);
+                if (used > budget) {
+                    break;
+                }
+                end += (end == 0 ? 0 : 1) + word.length();
+            }
+            return line.substring(0, end);
+        }
+    }
+}
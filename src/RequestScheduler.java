@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Central gate in front of every Cohere call. Admission is rate limited by two token buckets
+// (requests per minute and tokens per minute), interactive callers are always admitted ahead of
+// waiting batch callers, rate-limit and server errors are retried with jittered exponential backoff
+// that honours Retry-After, and a circuit breaker fails fast while the API keeps erroring.
+class RequestScheduler {
+
+    enum Priority { INTERACTIVE, BATCH }
+
+    private enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final double requestsPerMinute;
+    private final double tokensPerMinute;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition budgetChanged = lock.newCondition();
+    private double requestBudget;
+    private double tokenBudget;
+    private long lastRefillNanos = System.nanoTime();
+    private int interactiveWaiting;
+
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long circuitOpenedAt;
+    private boolean halfOpenTrialInFlight;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttledWaits = new AtomicLong();
+    private final AtomicLong rejectedByCircuit = new AtomicLong();
+
+    RequestScheduler(double requestsPerMinute, double tokensPerMinute, int maxRetries, long baseBackoffMillis,
+                     long maxBackoffMillis, int failureThreshold, long openMillis) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.requestBudget = requestsPerMinute;
+        this.tokenBudget = tokensPerMinute;
+    }
+
+    // cohere.rate.requests.per.minute, cohere.rate.tokens.per.minute, cohere.retry.max,
+    // cohere.retry.base.millis, cohere.circuit.failures and cohere.circuit.open.seconds
+    static RequestScheduler fromSystemProperties() {
+        return new RequestScheduler(
+                Integer.getInteger("cohere.rate.requests.per.minute", 100),
+                Integer.getInteger("cohere.rate.tokens.per.minute", 100_000),
+                Integer.getInteger("cohere.retry.max", 4),
+                Long.getLong("cohere.retry.base.millis", 500),
+                30_000,
+                Integer.getInteger("cohere.circuit.failures", 5),
+                Long.getLong("cohere.circuit.open.seconds", 30) * 1000);
+    }
+
+    // Rough prompt size (about four characters per token) plus the completion budget
+    static int estimateTokens(String prompt, int maxTokens) {
+        return prompt.length() / 4 + maxTokens;
+    }
+
+    <T> T execute(Priority priority, int estimatedTokens, Callable<T> call) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            // Checked before waiting for budget so an open circuit fails fast, and again after, when a
+            // half-open circuit's single trial is claimed for a call that is actually about to run
+            enterCircuit(false);
+            acquire(priority, estimatedTokens);
+            boolean trial = enterCircuit(true);
+            try {
+                T result = call.call();
+                recordSuccess();
+                return result;
+            } catch (Exception e) {
+                if (isCancellation(e)) {
+                    // The caller gave up; the service's health is as unknown as before
+                    throw e;
+                }
+                boolean retryable = isRetryable(e);
+                recordFailure(countsAgainstCircuit(e));
+                if (!retryable || attempt >= maxRetries) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                Thread.sleep(backoffMillis(attempt, e));
+            } finally {
+                if (trial) {
+                    endTrial();
+                }
+            }
+        }
+    }
+
+    long getRetryCount() {
+        return retries.get();
+    }
+
+    long getThrottledCount() {
+        return throttledWaits.get();
+    }
+
+    long getCircuitRejections() {
+        return rejectedByCircuit.get();
+    }
+
+    String getCircuitState() {
+        lock.lock();
+        try {
+            return circuitState.name();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(Priority priority, int estimatedTokens) throws InterruptedException {
+        // A single request larger than the whole bucket would otherwise wait forever
+        double tokens = Math.min(estimatedTokens, tokensPerMinute);
+        lock.lock();
+        try {
+            if (priority == Priority.INTERACTIVE) {
+                interactiveWaiting++;
+            }
+            try {
+                boolean waited = false;
+                while (true) {
+                    refill();
+                    boolean yieldToInteractive = priority == Priority.BATCH && interactiveWaiting > 0;
+                    if (!yieldToInteractive && requestBudget >= 1 && tokenBudget >= tokens) {
+                        requestBudget -= 1;
+                        tokenBudget -= tokens;
+                        return;
+                    }
+                    if (!waited) {
+                        throttledWaits.incrementAndGet();
+                        waited = true;
+                    }
+                    budgetChanged.await(Math.max(1, millisUntilAvailable(tokens)), TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                if (priority == Priority.INTERACTIVE) {
+                    interactiveWaiting--;
+                }
+                budgetChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double minutes = (now - lastRefillNanos) / 60e9;
+        lastRefillNanos = now;
+        requestBudget = Math.min(requestsPerMinute, requestBudget + minutes * requestsPerMinute);
+        tokenBudget = Math.min(tokensPerMinute, tokenBudget + minutes * tokensPerMinute);
+    }
+
+    private long millisUntilAvailable(double tokens) {
+        double requestWait = requestBudget >= 1 ? 0 : (1 - requestBudget) / requestsPerMinute * 60_000;
+        double tokenWait = tokenBudget >= tokens ? 0 : (tokens - tokenBudget) / tokensPerMinute * 60_000;
+        // Batch callers yielding to an interactive one re-check shortly after it is admitted
+        return (long) Math.ceil(Math.max(50, Math.max(requestWait, tokenWait)));
+    }
+
+    // Rejects the call while the circuit is open or a half-open trial is running. With claim set, a
+    // half-open circuit's trial is taken by this call, which is then the caller's to end.
+    private boolean enterCircuit(boolean claim) throws CircuitOpenException {
+        lock.lock();
+        try {
+            if (circuitState == CircuitState.OPEN && System.currentTimeMillis() - circuitOpenedAt >= openMillis) {
+                circuitState = CircuitState.HALF_OPEN;
+                halfOpenTrialInFlight = false;
+            }
+            if (circuitState == CircuitState.OPEN || (circuitState == CircuitState.HALF_OPEN && halfOpenTrialInFlight)) {
+                rejectedByCircuit.incrementAndGet();
+                throw new CircuitOpenException();
+            }
+            if (claim && circuitState == CircuitState.HALF_OPEN) {
+                halfOpenTrialInFlight = true;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Frees the trial whatever became of it, so an interrupted probe or one that threw an Error lets
+    // the next call probe instead of leaving the circuit rejecting everything
+    private void endTrial() {
+        lock.lock();
+        try {
+            halfOpenTrialInFlight = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            circuitState = CircuitState.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordFailure(boolean countsAgainstCircuit) {
+        lock.lock();
+        try {
+            if (circuitState == CircuitState.HALF_OPEN && !countsAgainstCircuit) {
+                // The probe got an answer, e.g. a 4xx, so the service is reachable again
+                consecutiveFailures = 0;
+                circuitState = CircuitState.CLOSED;
+                return;
+            }
+            if (!countsAgainstCircuit) {
+                return;
+            }
+            consecutiveFailures++;
+            if (circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                circuitState = CircuitState.OPEN;
+                circuitOpenedAt = System.currentTimeMillis();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only errors raised before any output was consumed are safe to retry: rate limiting, server errors
+    // and failures to connect. A connection dropped mid-stream is not retried to avoid duplicated text.
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof CohereClient.ApiException) {
+            int status = ((CohereClient.ApiException) e).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return e instanceof ConnectException || e instanceof HttpTimeoutException;
+    }
+
+    // Interruption or cancellation by the caller, which says nothing about the service
+    static boolean isCancellation(Throwable e) {
+        return e instanceof InterruptedException || e instanceof InterruptedIOException || e instanceof CancellationException
+                || e instanceof ClosedByInterruptException || Thread.currentThread().isInterrupted();
+    }
+
+    // Rate limiting means the service is healthy but busy, so it does not trip the breaker. Any other
+    // transport failure, including a broken or malformed stream, does.
+    private static boolean countsAgainstCircuit(Exception e) {
+        if (e instanceof CohereClient.ApiException) {
+            return ((CohereClient.ApiException) e).getStatusCode() >= 500;
+        }
+        return e instanceof IOException;
+    }
+
+    private long backoffMillis(int attempt, Exception e) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+        if (e instanceof CohereClient.ApiException) {
+            long retryAfter = ((CohereClient.ApiException) e).getRetryAfterMillis();
+            if (retryAfter > 0) {
+                return retryAfter + ThreadLocalRandom.current().nextLong(baseBackoffMillis / 2 + 1);
+            }
+        }
+        return jittered;
+    }
+
+    static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CircuitOpenException() {
+            super("AI service is temporarily unavailable after repeated failures; try again shortly");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Content-addressed cache for AI responses. Entries are keyed by a SHA-256 of the prompt plus the
+// generation parameters, held in an access-ordered LRU map and optionally mirrored to disk so they
+// survive restarts.
+class ResponseCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final File diskDir;
+    private final Map<String, CachedResponse> memory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ResponseCache(int maxEntries, long ttlMillis, File diskDir) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.diskDir = diskDir;
+        this.memory = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+        if (diskDir != null && !diskDir.isDirectory() && !diskDir.mkdirs()) {
+            System.err.println("Could not create response cache directory: " + diskDir);
+        }
+    }
+
+    // resume.cache.size, resume.cache.ttl.minutes and resume.cache.dir (disk tier is off unless set)
+    static ResponseCache fromSystemProperties() {
+        int size = Integer.getInteger("resume.cache.size", 500);
+        long ttlMinutes = Long.getLong("resume.cache.ttl.minutes", 24 * 60);
+        String dir = System.getProperty("resume.cache.dir");
+        return new ResponseCache(size, ttlMinutes * 60_000L, dir == null || dir.isEmpty() ? null : new File(dir));
+    }
+
+    static String key(String prompt, int maxTokens, double temperature) {
+        MessageDigest digest = Hashes.sha256();
+        digest.update(("max_tokens=" + maxTokens + "\ntemperature=" + temperature + "\n").getBytes(StandardCharsets.UTF_8));
+        return Hashes.toHex(digest.digest(prompt.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            CachedResponse cached = memory.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(now, ttlMillis)) {
+                    hits.incrementAndGet();
+                    return cached.text;
+                }
+                memory.remove(key);
+            }
+        }
+
+        CachedResponse fromDisk = readFromDisk(key, now);
+        if (fromDisk != null) {
+            synchronized (memory) {
+                memory.put(key, fromDisk);
+            }
+            hits.incrementAndGet();
+            return fromDisk.text;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String key, String response) {
+        CachedResponse cached = new CachedResponse(response, System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(key, cached);
+        }
+        writeToDisk(key, cached);
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    // Empties the memory tier; entries on disk stay
+    void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    private CachedResponse readFromDisk(String key, long now) {
+        if (diskDir == null) {
+            return null;
+        }
+        Path path = new File(diskDir, key + ".json").toPath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            CachedResponse cached = new CachedResponse(json.getString("response"), json.getLong("created"));
+            if (cached.isExpired(now, ttlMillis)) {
+                Files.deleteIfExists(path);
+                return null;
+            }
+            return cached;
+        } catch (Exception e) {
+            System.err.println("Ignoring unreadable cache entry " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CachedResponse cached) {
+        if (diskDir == null) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        json.put("created", cached.created);
+        json.put("response", cached.text);
+        try {
+            // Write to a temp file first so a crash never leaves a half-written entry behind
+            Path tmp = Files.createTempFile(diskDir.toPath(), key, ".tmp");
+            Files.write(tmp, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, new File(diskDir, key + ".json").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not persist cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    private static final class CachedResponse {
+        final String text;
+        final long created;
+
+        CachedResponse(String text, long created) {
+            this.text = text;
+            this.created = created;
+        }
+
+        boolean isExpired(long now, long ttlMillis) {
+            return ttlMillis > 0 && now - created > ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Everything worth keeping between sessions, keyed by resume content hash: extracted text, comparison
+// results, single-resume analyses and chat history. Records are appended to results.log and never
+// rewritten; a newer record for the same hash and kind replaces the older one, except that each chat
+// turn is its own record pointing back at the turn before it. results.idx holds one
+// fixed-size entry per record and is memory-mapped and scanned into an open-addressing table on
+// open, so opening costs a few milliseconds per hundred thousand records and bodies are read from the
+// log only when asked for. The log is self-describing: a missing or short index is rebuilt from it,
+// and a record torn by a crash is cut off.
+//
+// Only one process writes a store at a time; a second one opens it read-only.
+class ResultStore {
+
+    static final byte TEXT = 1;
+    static final byte RESULT = 2;
+    static final byte ANALYSIS = 3;
+    static final byte CHAT = 4;
+
+    private static final int LOG_MAGIC = 0x52534c47;
+    private static final int INDEX_MAGIC = 0x52534958;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    private static final int HASH_BYTES = 32;
+    // payload length, kind, hash, CRC32 of the payload
+    private static final int RECORD_HEADER = 4 + 1 + HASH_BYTES + 4;
+    // hash, log offset, payload length, kind, padding
+    private static final int INDEX_ENTRY = 48;
+    private static final Metrics.Histogram STORE_READ = Metrics.histogram("store.read");
+    private static final Metrics.Histogram STORE_WRITE = Metrics.histogram("store.write");
+
+    private final File dir;
+    private FileChannel log;
+    private FileChannel index;
+    private FileLock writeLock;
+    private long logEnd;
+    private long indexEnd;
+
+    // Open addressing on the first 8 bytes of the hash mixed with the kind; 0 marks an empty slot.
+    // A colliding key is caught when the record header's full hash is checked on read.
+    private long[] keys = new long[1024];
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int size;
+
+    private ResultStore(File dir) {
+        this.dir = dir;
+    }
+
+    // resume.store.dir (default ~/.ai-resume-analyzer/store); an empty value keeps nothing on disk
+    static ResultStore fromSystemProperties() {
+        String dir = System.getProperty("resume.store.dir",
+                System.getProperty("user.home") + File.separator + ".ai-resume-analyzer" + File.separator + "store");
+        return open(dir.isEmpty() ? null : new File(dir));
+    }
+
+    // A store that cannot be opened is reported and behaves as an empty one that keeps nothing
+    static ResultStore open(File dir) {
+        ResultStore store = new ResultStore(dir);
+        if (dir != null) {
+            try {
+                store.load();
+            } catch (IOException e) {
+                System.err.println("Could not open result store " + dir + ", results will not be kept: " + e.getMessage());
+                store.closeQuietly();
+            }
+        }
+        Metrics.gauge("store.records", store::size);
+        return store;
+    }
+
+    private void load() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        log = FileChannel.open(new File(dir, "results.log").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeLock = log.tryLock();
+        } catch (OverlappingFileLockException e) {
+            writeLock = null;
+        }
+        if (writeLock == null) {
+            System.err.println("Result store " + dir + " is in use by another process, opening it read-only");
+        }
+        index = FileChannel.open(new File(dir, "results.idx").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        logEnd = log.size();
+        if (logEnd == 0) {
+            writeHeader(log, LOG_MAGIC);
+            logEnd = FILE_HEADER;
+        } else if (logEnd < FILE_HEADER || readHeader(log) != LOG_MAGIC) {
+            throw new IOException("results.log is not a result store log");
+        }
+
+        long indexed = FILE_HEADER;
+        long entries = index.size() < FILE_HEADER || readHeader(index) != INDEX_MAGIC ? -1 : (index.size() - FILE_HEADER) / INDEX_ENTRY;
+        if (entries < 0) {
+            // Missing or foreign index: rebuilt from the log below
+            if (isWritable()) {
+                index.truncate(0);
+                writeHeader(index, INDEX_MAGIC);
+            }
+            entries = 0;
+        }
+        indexEnd = FILE_HEADER + entries * INDEX_ENTRY;
+        if (entries > 0) {
+            resize((int) Math.min(1 << 30, Integer.highestOneBit((int) Math.min(Integer.MAX_VALUE / 4, entries)) * 4L));
+            MappedByteBuffer mapped = index.map(FileChannel.MapMode.READ_ONLY, FILE_HEADER, entries * INDEX_ENTRY);
+            for (long i = 0; i < entries; i++) {
+                int at = (int) (i * INDEX_ENTRY);
+                long offset = mapped.getLong(at + HASH_BYTES);
+                int length = mapped.getInt(at + HASH_BYTES + 8);
+                if (offset < FILE_HEADER || offset + RECORD_HEADER + length > logEnd) {
+                    // Written after a log record that did not make it to disk
+                    indexEnd = FILE_HEADER + i * INDEX_ENTRY;
+                    break;
+                }
+                put(key(mapped.getLong(at), mapped.get(at + HASH_BYTES + 12)), offset, length);
+                indexed = Math.max(indexed, offset + RECORD_HEADER + length);
+            }
+        }
+        if (isWritable() && index.size() != indexEnd) {
+            index.truncate(indexEnd);
+        }
+        recoverTail(indexed);
+    }
+
+    // Indexes records appended after the last index entry (the process stopped between the two
+    // writes, or the index was rebuilt) and cuts off a torn record at the end of the log
+    private void recoverTail(long from) throws IOException {
+        long position = from;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (position + RECORD_HEADER <= logEnd) {
+            header.clear();
+            readFully(log, header, position);
+            int length = header.getInt(0);
+            byte kind = header.get(4);
+            if (length < 0 || position + RECORD_HEADER + length > logEnd) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(log, payload, position + RECORD_HEADER);
+            if (crc(payload.array()) != header.getInt(4 + 1 + HASH_BYTES)) {
+                break;
+            }
+            byte[] hash = new byte[HASH_BYTES];
+            header.position(5);
+            header.get(hash);
+            if (isWritable()) {
+                writeIndexEntry(hash, kind, position, length);
+            }
+            put(key(ByteBuffer.wrap(hash).getLong(), kind), position, length);
+            position += RECORD_HEADER + length;
+        }
+        if (position < logEnd) {
+            System.err.println("Result store " + dir + ": dropping " + (logEnd - position) + " bytes of incomplete records");
+            if (isWritable()) {
+                log.truncate(position);
+            }
+            logEnd = position;
+        }
+    }
+
+    boolean isWritable() {
+        return writeLock != null;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    boolean contains(String contentHash, byte kind) {
+        return locate(contentHash, kind) != null;
+    }
+
+    // --- Typed records ---
+
+    String text(String contentHash) {
+        byte[] payload = read(contentHash, TEXT);
+        return payload == null ? null : new String(payload, StandardCharsets.UTF_8);
+    }
+
+    // Extracted text never changes for a given content hash, so it is written once
+    void putText(String contentHash, String text) {
+        if (!contains(contentHash, TEXT)) {
+            append(contentHash, TEXT, text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // A comparison result, sequenced after everything already ranked in this session
+    ResumeRanking.Result result(String contentHash) {
+        JSONObject json = readJson(contentHash, RESULT);
+        if (json == null) {
+            return null;
+        }
+        return new ResumeRanking.Result(new File(json.getString("file")), contentHash, json.getInt("score"), json.getBoolean("ai"),
+                json.optString("analysis", ""), json.has("grammar") ? json.getString("grammar") : null, 0);
+    }
+
+    void putResult(ResumeRanking.Result result) {
+        JSONObject json = new JSONObject();
+        json.put("file", result.file.getPath());
+        json.put("score", result.score);
+        json.put("ai", result.aiAnalyzed);
+        json.put("analysis", result.analysis);
+        json.putOpt("grammar", result.grammarAnalysis);
+        append(result.contentHash, RESULT, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    ResumeAnalysisEngine.Analysis analysis(String contentHash) {
+        JSONObject json = readJson(contentHash, ANALYSIS);
+        if (json == null) {
+            return null;
+        }
+        return new ResumeAnalysisEngine.Analysis(json.getInt("ats_score"), json.getInt("interview_probability"),
+                json.optString("analysis", ""), json.optString("grammar", ""));
+    }
+
+    void putAnalysis(String contentHash, ResumeAnalysisEngine.Analysis analysis) {
+        JSONObject json = new JSONObject();
+        json.put("ats_score", analysis.atsScore);
+        json.put("interview_probability", analysis.interviewProbability);
+        json.put("analysis", analysis.analysis);
+        json.put("grammar", analysis.grammar);
+        append(contentHash, ANALYSIS, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Chat turns, oldest first; empty when the resume was never chatted about or the chat was reset.
+    // Follows the chain from the latest turn back to the first one or to a reset marker.
+    List<ChatSession.Turn> chat(String contentHash) {
+        List<ChatSession.Turn> turns = new ArrayList<>();
+        long[] location = locate(contentHash, CHAT);
+        while (location != null) {
+            byte[] payload = readAt(contentHash, CHAT, location[0], (int) location[1]);
+            if (payload == null) {
+                break;
+            }
+            String json = new String(payload, StandardCharsets.UTF_8);
+            if (json.startsWith("[")) {
+                // Whole-history record written by earlier versions
+                JSONArray array = new JSONArray(json);
+                for (int i = array.length() - 1; i >= 0; i--) {
+                    turns.add(turn(array.getJSONObject(i)));
+                }
+                break;
+            }
+            JSONObject record = new JSONObject(json);
+            if (!record.has("message")) {
+                break;
+            }
+            turns.add(turn(record));
+            long previous = record.optLong("previous", -1);
+            location = previous >= FILE_HEADER && previous < location[0] ? new long[]{previous, record.getInt("previous_length")} : null;
+        }
+        Collections.reverse(turns);
+        return turns;
+    }
+
+    // Appends one turn, linked to the conversation's latest turn, so a turn costs the same however long the chat is
+    synchronized void addChatTurn(String contentHash, ChatSession.Turn turn) {
+        JSONObject json = new JSONObject().put("message", turn.message).put("reply", turn.reply);
+        long[] previous = locate(contentHash, CHAT);
+        if (previous != null) {
+            json.put("previous", previous[0]).put("previous_length", previous[1]);
+        }
+        append(contentHash, CHAT, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // An empty record ends the chain, so the next turn starts a new conversation
+    void resetChat(String contentHash) {
+        if (contains(contentHash, CHAT)) {
+            append(contentHash, CHAT, "{}".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static ChatSession.Turn turn(JSONObject json) {
+        return new ChatSession.Turn(json.getString("message"), json.getString("reply"));
+    }
+
+    // --- Log and index ---
+
+    private JSONObject readJson(String contentHash, byte kind) {
+        byte[] payload = read(contentHash, kind);
+        try {
+            return payload == null ? null : new JSONObject(new String(payload, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring unreadable result store record for " + contentHash + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The latest payload for the hash and kind, or null. The record header is checked against the
+    // full hash and the payload against its CRC before anything is returned.
+    private byte[] read(String contentHash, byte kind) {
+        long[] location = locate(contentHash, kind);
+        return location == null ? null : readAt(contentHash, kind, location[0], (int) location[1]);
+    }
+
+    private byte[] readAt(String contentHash, byte kind, long offset, int length) {
+        long started = System.nanoTime();
+        try {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+            readFully(log, record, offset);
+            byte[] hash = new byte[HASH_BYTES];
+            record.position(5);
+            record.get(hash);
+            if (record.get(4) != kind || !Arrays.equals(hash, hashBytes(contentHash))) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            record.position(RECORD_HEADER);
+            record.get(payload);
+            if (crc(payload) != record.getInt(5 + HASH_BYTES)) {
+                System.err.println("Ignoring corrupt result store record for " + contentHash);
+                return null;
+            }
+            return payload;
+        } catch (IOException e) {
+            System.err.println("Could not read result store record for " + contentHash + ": " + e.getMessage());
+            return null;
+        } finally {
+            STORE_READ.recordSince(started);
+        }
+    }
+
+    // Log first, then the index entry, so an entry never points past the end of the log
+    private synchronized void append(String contentHash, byte kind, byte[] payload) {
+        if (!isWritable()) {
+            return;
+        }
+        long started = System.nanoTime();
+        byte[] hash = hashBytes(contentHash);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+        record.putInt(payload.length).put(kind).put(hash).putInt(crc(payload)).put(payload).flip();
+        try {
+            long offset = logEnd;
+            while (record.hasRemaining()) {
+                log.write(record, offset + record.position());
+            }
+            logEnd = offset + RECORD_HEADER + payload.length;
+            writeIndexEntry(hash, kind, offset, payload.length);
+            put(key(ByteBuffer.wrap(hash).getLong(), kind), offset, payload.length);
+        } catch (IOException e) {
+            System.err.println("Could not write to result store " + dir + ": " + e.getMessage());
+        } finally {
+            STORE_WRITE.recordSince(started);
+        }
+    }
+
+    private void writeIndexEntry(byte[] hash, byte kind, long offset, int length) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+        entry.put(hash).putLong(offset).putInt(length).put(kind).clear();
+        while (entry.hasRemaining()) {
+            index.write(entry, indexEnd + entry.position());
+        }
+        indexEnd += INDEX_ENTRY;
+    }
+
+    // {offset, payload length} or null
+    private synchronized long[] locate(String contentHash, byte kind) {
+        if (log == null) {
+            return null;
+        }
+        long key = key(ByteBuffer.wrap(hashBytes(contentHash)).getLong(), kind);
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return new long[]{offsets[slot], lengths[slot]};
+            }
+        }
+        return null;
+    }
+
+    // Adds or replaces; called under the instance lock or during load
+    private void put(long key, long offset, int length) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            size++;
+        }
+        keys[slot] = key;
+        offsets[slot] = offset;
+        lengths[slot] = length;
+    }
+
+    private void grow() {
+        resize(keys.length * 2);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldOffsets = offsets;
+        int[] oldLengths = lengths;
+        keys = new long[capacity];
+        offsets = new long[capacity];
+        lengths = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldOffsets[i], oldLengths[i]);
+            }
+        }
+    }
+
+    private static long key(long hashPrefix, byte kind) {
+        long key = hashPrefix * 31 + kind;
+        return key == 0 ? 1 : key;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static byte[] hashBytes(String contentHash) {
+        byte[] bytes = new byte[HASH_BYTES];
+        for (int i = 0; i < HASH_BYTES && i * 2 + 1 < contentHash.length(); i++) {
+            bytes[i] = (byte) ((Character.digit(contentHash.charAt(i * 2), 16) << 4) | Character.digit(contentHash.charAt(i * 2 + 1), 16));
+        }
+        return bytes;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void writeHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(magic).putInt(FORMAT_VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static int readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(channel, header, 0);
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("unsupported result store version " + header.getInt(4));
+        }
+        return header.getInt(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    // Releases the files and the write lock; the store then keeps nothing
+    synchronized void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (log != null) {
+                log.close();
+            }
+            if (index != null) {
+                index.close();
+            }
+        } catch (IOException ignored) {
+        }
+        log = null;
+        index = null;
+        writeLock = null;
+    }
+}
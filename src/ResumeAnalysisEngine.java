@@ -0,0 +1,771 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Everything the analyzer does that is not Swing: PDF ingestion, the resume store, index and vectors,
+// local scoring, prompt building, AI calls (cache, coalescing, scheduling) and comparison runs. The GUI,
+// the command line and any other front-end drive the same engine and only differ in how they show results.
+class ResumeAnalysisEngine {
+
+    static final int DEFAULT_MAX_TOKENS = 800;
+    static final double DEFAULT_TEMPERATURE = 0.5;
+    static final int COMBINED_MAX_TOKENS = 1600;
+    static final int CHAT_MAX_TOKENS = 350;
+    private static final Metrics.Histogram JSON_PARSE = Metrics.histogram("json.parse");
+    private static final LongAdder PROMPT_TOKENS = Metrics.counter("tokens.prompt");
+    private static final LongAdder RESPONSE_TOKENS = Metrics.counter("tokens.response");
+    private static final LongAdder ANALYSIS_ERRORS = Metrics.counter("errors.analysis");
+
+    private final CohereClient cohereClient;
+    private final RequestScheduler requestScheduler;
+    private final ResponseCache responseCache;
+    private final PromptCompactor promptCompactor;
+    private final ChatSessions chatSessions;
+    private final SingleFlight<String, String> inFlightRequests = new SingleFlight<>();
+
+    // Maximum number of Cohere calls a comparison run keeps in flight at once
+    private final ExecutorService comparisonExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int comparisonConcurrency;
+    private final Semaphore comparisonPermits;
+    // Only this many of the best locally scored resumes get AI analysis during a comparison
+    private final int aiTopK;
+
+    private final PdfTextExtractor pdfExtractor;
+    private final ResumeStore resumeStore;
+    // Text, results, analyses and chat history kept across runs by content hash
+    private final ResultStore resultStore;
+    private final AtsKeywordScorer atsScorer;
+    private final File indexFile;
+    private final ResumeIndex resumeIndex;
+    private final ResumeVectorStore resumeVectors;
+    // Complete once start() has restored the vectors of resumes indexed in earlier sessions; an engine
+    // that is never started only matches against resumes ingested since it was built
+    private volatile CompletableFuture<Void> vectorsRestored = CompletableFuture.completedFuture(null);
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final ResumeRanking resumeRanking = new ResumeRanking();
+
+    ResumeAnalysisEngine(CohereClient cohereClient, RequestScheduler requestScheduler, ResponseCache responseCache,
+                         PromptCompactor promptCompactor, ChatSessions chatSessions, PdfTextExtractor pdfExtractor, AtsKeywordScorer atsScorer, ResumeVectorStore resumeVectors,
+                         ResultStore resultStore, File indexFile, int comparisonConcurrency, int aiTopK) {
+        this.cohereClient = cohereClient;
+        this.requestScheduler = requestScheduler;
+        this.responseCache = responseCache;
+        this.promptCompactor = promptCompactor;
+        this.chatSessions = chatSessions;
+        this.pdfExtractor = pdfExtractor;
+        this.resultStore = resultStore;
+        this.resumeStore = new ResumeStore(pdfExtractor::extract, resultStore);
+        this.atsScorer = atsScorer;
+        this.resumeVectors = resumeVectors;
+        this.indexFile = indexFile;
+        this.resumeIndex = loadResumeIndex(indexFile);
+        this.comparisonConcurrency = Math.max(1, comparisonConcurrency);
+        this.comparisonPermits = new Semaphore(this.comparisonConcurrency);
+        this.aiTopK = aiTopK;
+        Metrics.gauge("cache.hits", responseCache::getHits);
+        Metrics.gauge("cache.misses", responseCache::getMisses);
+        Metrics.gauge("ai.coalesced", inFlightRequests::getCoalescedCount);
+        Metrics.gauge("cache.entries", responseCache::size);
+        Metrics.gauge("ai.retries", requestScheduler::getRetryCount);
+        Metrics.gauge("ai.throttled", requestScheduler::getThrottledCount);
+        Metrics.gauge("ai.circuit.rejections", requestScheduler::getCircuitRejections);
+    }
+
+    // cohere.api.key, resume.comparison.concurrency, resume.ai.topk and resume.index.file, plus the
+    // properties read by each component's own fromSystemProperties
+    static ResumeAnalysisEngine fromSystemProperties() {
+        return fromSystemProperties(Integer.getInteger("resume.comparison.concurrency", 8));
+    }
+
+    // As above, with the number of AI calls in flight at once chosen by the caller
+    static ResumeAnalysisEngine fromSystemProperties(int comparisonConcurrency) {
+        ResultStore resultStore = ResultStore.fromSystemProperties();
+        return new ResumeAnalysisEngine(
+                CohereClient.fromSystemProperties(System.getProperty("cohere.api.key", "your-cohere-ai-api-key")),
+                RequestScheduler.fromSystemProperties(),
+                ResponseCache.fromSystemProperties(),
+                PromptCompactor.fromSystemProperties(),
+                ChatSessions.fromSystemProperties(resultStore),
+                PdfTextExtractor.fromSystemProperties(),
+                AtsKeywordScorer.fromSystemProperties(),
+                ResumeVectorStore.fromSystemProperties(),
+                resultStore,
+                new File(System.getProperty("resume.index.file",
+                        System.getProperty("user.home") + File.separator + ".ai-resume-analyzer" + File.separator + "index.bin")),
+                comparisonConcurrency,
+                Integer.getInteger("resume.ai.topk", 10));
+    }
+
+    // Vectors are only held in memory; resumes indexed in earlier sessions get theirs back from the
+    // text in the result store. Front-ends that match job descriptions call this once after building
+    // the engine. The restore runs in the background so startup doesn't wait for it.
+    void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture<Void> restored = new CompletableFuture<>();
+        vectorsRestored = restored;
+        Thread.ofVirtual().name("vector-restore").start(() -> {
+            try {
+                restoreVectors();
+            } finally {
+                restored.complete(null);
+            }
+        });
+    }
+
+    // True while start()'s restore is still running, so a match would wait for it
+    boolean isWarming() {
+        return !vectorsRestored.isDone();
+    }
+
+    int getAiTopK() {
+        return aiTopK;
+    }
+
+    int getComparisonConcurrency() {
+        return comparisonConcurrency;
+    }
+
+    // Drops the comparison results and AI responses held in memory, so the next comparison starts
+    // cold; results kept in the result store are not touched
+    void forgetResults() {
+        resumeRanking.clear();
+        responseCache.clear();
+    }
+
+    // Stops the comparison workers; calls in flight are interrupted
+    void close() {
+        comparisonExecutor.shutdownNow();
+    }
+
+    // --- Ingestion ---
+
+    // Extracts the files in parallel and registers each one with the store, the search index and the
+    // vector store before handing it to onDocument. Failed files are passed to onError instead. Files
+    // whose content was extracted in an earlier run are read from the result store, not parsed.
+    PdfTextExtractor.IngestReport ingest(List<File> pdfs, Consumer<ResumeDocument> onDocument,
+                                         BiConsumer<File, Exception> onError) throws InterruptedException {
+        PdfTextExtractor.IngestReport report = pdfExtractor.extractAll(pdfs, file -> resumeStore.get(file).getText(), (result, text) -> {
+            try {
+                if (!result.isSuccess()) {
+                    throw result.error;
+                }
+                onDocument.accept(register(resumeStore.get(result.file)));
+            } catch (Exception e) {
+                onError.accept(result.file, e);
+            }
+        });
+        saveResumeIndex();
+        return report;
+    }
+
+    // Single-file ingestion for callers that add resumes one at a time; the index is not saved, so
+    // such callers persist it themselves with saveResumeIndex()
+    ResumeDocument ingest(File pdf) throws IOException {
+        return register(resumeStore.get(pdf));
+    }
+
+    private ResumeDocument register(ResumeDocument document) {
+        indexResume(document);
+        resumeVectors.put(document.getFile(), document.getText());
+        return document;
+    }
+
+    ResumeDocument document(File file) throws IOException {
+        return resumeStore.get(file);
+    }
+
+    // Extracts without keeping the document, for one-pass batch runs over more resumes than fit in
+    // memory; contentHash is the SHA-256 of the file, which the caller has already computed
+    ResumeDocument readOnce(File file, String contentHash) throws IOException {
+        return resumeStore.read(file, contentHash);
+    }
+
+    List<File> search(String query) {
+        return resumeIndex.search(query);
+    }
+
+    int indexedCount() {
+        return resumeIndex.size();
+    }
+
+    // Waits for the restore started by start(), so resumes from earlier sessions are never left out
+    List<ResumeVectorStore.Match> matchJobDescription(String jobDescription, int k) throws InterruptedException {
+        try {
+            vectorsRestored.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Vector restore failed", e.getCause());
+        }
+        return resumeVectors.topMatches(jobDescription, k);
+    }
+
+    int vectorCount() {
+        return resumeVectors.size();
+    }
+
+    private void restoreVectors() {
+        for (Map.Entry<File, String> document : resumeIndex.documents().entrySet()) {
+            String text = resultStore.text(document.getValue());
+            if (text != null) {
+                resumeVectors.putIfAbsent(document.getKey(), text);
+            }
+        }
+    }
+
+    private static ResumeIndex loadResumeIndex(File indexFile) {
+        if (indexFile.isFile()) {
+            try {
+                return ResumeIndex.load(indexFile);
+            } catch (IOException e) {
+                System.err.println("Could not load resume index " + indexFile + ", starting a new one: " + e.getMessage());
+            }
+        }
+        return new ResumeIndex();
+    }
+
+    void saveResumeIndex() {
+        try {
+            resumeIndex.save(indexFile);
+        } catch (IOException e) {
+            System.err.println("Could not save resume index " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    // Indexes the text together with the skills the local ATS scorer detected in it
+    private void indexResume(ResumeDocument document) {
+        List<String> skills = new ArrayList<>();
+        localAtsScore(document).matchedKeywords.values().forEach(skills::addAll);
+        resumeIndex.update(document.getFile(), document.getContentHash(), document.getText(), skills);
+    }
+
+    AtsKeywordScorer.Result localAtsScore(ResumeDocument document) {
+        return document.derived("localAtsScore", doc -> atsScorer.score(doc.getText()));
+    }
+
+    // --- Single-resume analysis ---
+
+    // AI calls analyze() runs at once for one resume
+    static final int CALLS_PER_ANALYSIS = 3;
+
+    // ATS analysis, grammar feedback and interview probability for one resume. The three calls run
+    // concurrently, or as one call when combined is set and the reply parses. A resume analyzed in an
+    // earlier run is answered from the result store.
+    Analysis analyze(ResumeDocument document, boolean combined, RequestScheduler.Priority priority) throws Exception {
+        Analysis stored = storedAnalysis(document);
+        if (stored != null) {
+            return stored;
+        }
+        String text = document.getText();
+        if (combined) {
+            Analysis analysis = combinedAnalysis(text, priority);
+            if (analysis != null) {
+                saveAnalysis(document, analysis);
+                return analysis;
+            }
+        }
+        Future<String> ats = submitComparisonJob(() -> callCohereAPI(buildAtsPrompt(text), DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE, priority));
+        Future<String> grammar = submitComparisonJob(() -> callCohereAPI(buildGrammarPrompt(text), DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE, priority));
+        Future<Integer> probability = submitComparisonJob(() -> interviewProbability(text, priority));
+        try {
+            String atsAnalysis = awaitComparisonJob(ats);
+            Analysis analysis = new Analysis(Math.max(0, AiResponseParser.parse(atsAnalysis).getAtsScore()), awaitComparisonJob(probability),
+                    atsAnalysis, awaitComparisonJob(grammar));
+            saveAnalysis(document, analysis);
+            return analysis;
+        } finally {
+            ats.cancel(true);
+            grammar.cancel(true);
+            probability.cancel(true);
+        }
+    }
+
+    // The analysis kept from an earlier run, or null
+    Analysis storedAnalysis(ResumeDocument document) {
+        return resultStore.analysis(document.getContentHash());
+    }
+
+    // For front-ends that run the analysis calls themselves, e.g. to stream them
+    void saveAnalysis(ResumeDocument document, Analysis analysis) {
+        resultStore.putAnalysis(document.getContentHash(), analysis);
+    }
+
+    int interviewProbability(String resumeText, RequestScheduler.Priority priority) throws Exception {
+        String aiResponse = callCohereAPI(buildProbabilityPrompt(resumeText), DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE, priority);
+        int probability = AiResponseParser.parse(aiResponse).getInterviewProbability();
+        if (probability < 0) {
+            System.err.println("No interview probability in reply: " + aiResponse);
+        }
+        return Math.max(0, probability);
+    }
+
+    // Single-call variant of the ATS, grammar and probability calls. Returns null when the response
+    // isn't usable JSON so the caller can use the three-call path instead.
+    Analysis combinedAnalysis(String resumeText, RequestScheduler.Priority priority) {
+        try {
+            String aiResponse = callCohereAPI(buildCombinedPrompt(resumeText), COMBINED_MAX_TOKENS, DEFAULT_TEMPERATURE, priority);
+            int jsonStart = aiResponse.indexOf('{');
+            int jsonEnd = aiResponse.lastIndexOf('}');
+            if (jsonStart < 0 || jsonEnd <= jsonStart) {
+                System.err.println("Combined analysis did not return JSON, falling back to separate calls");
+                return null;
+            }
+            JSONObject result = new JSONObject(aiResponse.substring(jsonStart, jsonEnd + 1));
+            if (!result.has("ats_score")) {
+                System.err.println("Combined analysis is missing ats_score, falling back to separate calls");
+                return null;
+            }
+
+            int atsScore = result.optInt("ats_score", 0);
+            String analysis = "ATS COMPATIBILITY SCORE: " + atsScore + "\n" +
+                    "ATS COMPATIBILITY DETAILS: " + jsonText(result, "ats_details") + "\n" +
+                    "FORMAT: " + jsonText(result, "format") + "\n" +
+                    "SECTIONS: " + jsonText(result, "sections") + "\n" +
+                    "SKILLS: " + jsonText(result, "skills") + "\n" +
+                    "STYLE: " + jsonText(result, "style") + "\n" +
+                    "ATS Keyword Matches: " + jsonText(result, "keyword_matches");
+            return new Analysis(atsScore, result.optInt("interview_probability", 0), analysis, jsonText(result, "grammar"));
+        } catch (Exception e) {
+            System.err.println("Combined analysis failed, falling back to separate calls: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Models sometimes answer a text field with a list, so flatten arrays into lines
+    private static String jsonText(JSONObject json, String key) {
+        JSONArray array = json.optJSONArray(key);
+        if (array != null) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < array.length(); i++) {
+                text.append(i == 0 ? "" : "\n").append("- ").append(array.opt(i));
+            }
+            return text.toString();
+        }
+        return json.optString(key, "").trim();
+    }
+
+    // --- Comparison ---
+
+    // Only resumes that are new, changed, or newly in the AI top K are analyzed; everything else is
+    // answered from resumeRanking, so adding one resume to a compared pool costs one analysis
+    Comparison compare(List<File> resumes, int topN, ComparisonListener listener) throws InterruptedException {
+        // One entry per distinct content; the same resume uploaded twice is analyzed and ranked once
+        Map<String, ResumeDocument> documents = new LinkedHashMap<>();
+        for (File resumeFile : resumes) {
+            try {
+                ResumeDocument document = resumeStore.get(resumeFile);
+                documents.putIfAbsent(document.getContentHash(), document);
+            } catch (IOException e) {
+                listener.readFailed(resumeFile, e);
+            }
+        }
+
+        // Pre-rank the whole pool with the local keyword scorer; only the top candidates are worth an AI call
+        Set<String> aiCandidates = new HashSet<>();
+        documents.values().stream()
+                .sorted(Comparator.comparingInt((ResumeDocument document) -> localAtsScore(document).score).reversed())
+                .limit(aiTopK)
+                .forEach(document -> aiCandidates.add(document.getContentHash()));
+
+        List<ResumeDocument> pending = new ArrayList<>();
+        for (ResumeDocument document : documents.values()) {
+            ResumeRanking.Result known = rankedResult(document.getContentHash());
+            if (known == null || (!known.aiAnalyzed && aiCandidates.contains(document.getContentHash()))) {
+                pending.add(document);
+            }
+        }
+
+        // Fire the ATS and grammar calls for every candidate up front so the batch
+        // takes as long as the slowest call rather than the sum of all of them
+        Map<String, Future<String>> atsJobs = new HashMap<>();
+        Map<String, Future<String>> grammarJobs = new HashMap<>();
+        for (ResumeDocument document : pending) {
+            if (aiCandidates.contains(document.getContentHash())) {
+                atsJobs.put(document.getContentHash(), submitComparisonJob(() -> callCohereAPI(buildAtsPrompt(document.getText()),
+                        DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE, RequestScheduler.Priority.BATCH)));
+                grammarJobs.put(document.getContentHash(), submitComparisonJob(() -> callCohereAPI(buildGrammarPrompt(document.getText()),
+                        DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE, RequestScheduler.Priority.BATCH)));
+            }
+        }
+
+        // Collect in upload order so the output and tie-breaking in the ranking stay deterministic
+        try {
+            int completed = 0;
+            for (ResumeDocument document : pending) {
+                File resumeFile = document.getFile();
+                AtsKeywordScorer.Result local = localAtsScore(document);
+                if (!aiCandidates.contains(document.getContentHash())) {
+                    String analysis = local.describe();
+                    rank(resumeFile, document.getContentHash(), local.score, false, analysis, null);
+                    listener.localAnalysis(resumeFile, analysis, local.score);
+                    listener.progress(++completed, pending.size());
+                    continue;
+                }
+
+                String analysis;
+                int score;
+                try {
+                    analysis = awaitComparisonJob(atsJobs.get(document.getContentHash()));
+                    // A reply without a parsable score would otherwise rank the resume last
+                    int aiScore = AiResponseParser.parse(analysis).getAtsScore();
+                    score = aiScore >= 0 ? aiScore : local.score;
+                    listener.aiAnalysis(resumeFile, analysis, score, aiScore >= 0);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    ANALYSIS_ERRORS.increment();
+                    listener.analysisFailed(resumeFile, e);
+                    e.printStackTrace();
+                    // Left out of the ranking so the next comparison retries it
+                    listener.progress(++completed, pending.size());
+                    continue;
+                }
+
+                String grammarAnalysis = null;
+                try {
+                    grammarAnalysis = awaitComparisonJob(grammarJobs.get(document.getContentHash()));
+                    listener.grammarAnalysis(resumeFile, grammarAnalysis);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    ANALYSIS_ERRORS.increment();
+                    listener.grammarFailed(resumeFile, e);
+                    e.printStackTrace();
+                }
+                rank(resumeFile, document.getContentHash(), score, true, analysis, grammarAnalysis);
+                listener.progress(++completed, pending.size());
+            }
+        } catch (InterruptedException e) {
+            atsJobs.values().forEach(job -> job.cancel(true));
+            grammarJobs.values().forEach(job -> job.cancel(true));
+            throw e;
+        }
+
+        // Results are reported under the file names used in this run, even when the content was first seen under another
+        Map<File, String> analyses = new LinkedHashMap<>();
+        Map<File, Integer> scores = new LinkedHashMap<>();
+        Map<File, String> grammar = new HashMap<>();
+        for (ResumeDocument document : documents.values()) {
+            ResumeRanking.Result result = resumeRanking.get(document.getContentHash());
+            if (result != null) {
+                analyses.put(document.getFile(), result.analysis);
+                scores.put(document.getFile(), result.score);
+                if (result.grammarAnalysis != null) {
+                    grammar.put(document.getFile(), result.grammarAnalysis);
+                }
+            }
+        }
+        List<Entry<File, Integer>> ranking = new ArrayList<>();
+        for (ResumeRanking.Result result : resumeRanking.top(topN, documents.keySet())) {
+            ranking.add(new AbstractMap.SimpleEntry<>(documents.get(result.contentHash).getFile(), result.score));
+        }
+        return new Comparison(analyses, scores, grammar, ranking, documents.size() - pending.size());
+    }
+
+    // Ranked result for the content, loading one kept from an earlier run into the ranking on first use
+    private ResumeRanking.Result rankedResult(String contentHash) {
+        ResumeRanking.Result known = resumeRanking.get(contentHash);
+        if (known == null) {
+            ResumeRanking.Result stored = resultStore.result(contentHash);
+            if (stored != null) {
+                known = resumeRanking.put(stored.file, contentHash, stored.score, stored.aiAnalyzed, stored.analysis, stored.grammarAnalysis);
+            }
+        }
+        return known;
+    }
+
+    private void rank(File file, String contentHash, int score, boolean aiAnalyzed, String analysis, String grammarAnalysis) {
+        resultStore.putResult(resumeRanking.put(file, contentHash, score, aiAnalyzed, analysis, grammarAnalysis));
+    }
+
+    <T> Future<T> submitComparisonJob(Callable<T> job) {
+        return comparisonExecutor.submit(() -> {
+            comparisonPermits.acquire();
+            try {
+                return job.call();
+            } finally {
+                comparisonPermits.release();
+            }
+        });
+    }
+
+    static <T> T awaitComparisonJob(Future<T> job) throws Exception {
+        try {
+            return job.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    // --- Prompts ---
+
+    // Analyze and Compare share these builders so the same resume always yields a byte-identical
+    // prompt, which lets the response cache and request coalescing treat them as one request. The
+    // resume is compacted to the task's token budget rather than cut at a fixed length.
+    String buildGrammarPrompt(String resumeText) {
+        return "Analyze the following resume for grammar and language quality. " +
+                "Identify specific errors and suggest improvements.\n\n" +
+                "RESUME:\n" + promptCompactor.compact(resumeText, PromptCompactor.Task.GRAMMAR);
+    }
+
+    String buildAtsPrompt(String resumeText) {
+        return "Analyze the following resume for ATS compatibility, format, sections, skills, and style. " +
+                "Identify key skills and provide a summary of ATS keyword matches. " +
+                "Based on your analysis, provide an ATS compatibility score out of 100.\n\n" +
+                "RESUME:\n" + promptCompactor.compact(resumeText, PromptCompactor.Task.ATS) +
+                "\n\nProvide the analysis in the following format:\n" +
+                "ATS COMPATIBILITY SCORE: [Numerical score out of 100]\n" +
+                "ATS COMPATIBILITY DETAILS: [Summary based on keywords and formatting]\n" +
+                "FORMAT: [Strengths and weaknesses of the formatting]\n" +
+                "SECTIONS: [Completeness and relevance of the sections]\n" +
+                "SKILLS: [Key skills identified]\n" +
+                "STYLE: [Professionalism and clarity of writing style]\n" +
+                "ATS Keyword Matches: [List of key categories and whether relevant keywords are present]";
+    }
+
+    String buildProbabilityPrompt(String resumeText) {
+        return "Estimate the probability (as a percentage) of this resume leading to an interview, considering its overall quality, ATS compatibility, skills match, and presentation.\n\n" +
+                "RESUME:\n" + promptCompactor.compact(resumeText, PromptCompactor.Task.PROBABILITY) + "\n\n" +
+                "Provide the probability as: Interview Probability: [Percentage]%";
+    }
+
+    String buildCombinedPrompt(String resumeText) {
+        return "Analyze the following resume for ATS compatibility, format, sections, skills, style, " +
+                "grammar and language quality, and estimate the probability (as a percentage) of it leading to an interview.\n\n" +
+                "RESUME:\n" + promptCompactor.compact(resumeText, PromptCompactor.Task.COMBINED) +
+                "\n\nRespond with a single JSON object and nothing else, using exactly these keys:\n" +
+                "{\"ats_score\": [Numerical score out of 100], " +
+                "\"ats_details\": \"[Summary based on keywords and formatting]\", " +
+                "\"format\": \"[Strengths and weaknesses of the formatting]\", " +
+                "\"sections\": \"[Completeness and relevance of the sections]\", " +
+                "\"skills\": \"[Key skills identified]\", " +
+                "\"style\": \"[Professionalism and clarity of writing style]\", " +
+                "\"keyword_matches\": \"[Key categories and whether relevant keywords are present]\", " +
+                "\"interview_probability\": [Percentage as a number], " +
+                "\"grammar\": \"[Specific grammar and language errors with suggested improvements]\"}";
+    }
+
+    // --- AI transport ---
+
+    // Identical prompts with identical generation parameters are answered from the response cache,
+    // and concurrent identical requests share a single HTTP call
+    String callCohereAPI(String prompt, int maxTokens, double temperature, RequestScheduler.Priority priority) throws Exception {
+        String cacheKey = ResponseCache.key(prompt, maxTokens, temperature);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        return inFlightRequests.execute(cacheKey, () -> requestScheduler.execute(priority, RequestScheduler.estimateTokens(prompt, maxTokens),
+                () -> requestGeneration(cacheKey, prompt, maxTokens, temperature)));
+    }
+
+    private String requestGeneration(String cacheKey, String prompt, int maxTokens, double temperature) throws Exception {
+        String response = cohereClient.generate(generationRequest(prompt, maxTokens, temperature));
+        long started = System.nanoTime();
+        JSONObject jsonResponse = new JSONObject(response);
+        JSON_PARSE.recordSince(started);
+        JSONArray generations = jsonResponse.getJSONArray("generations");
+        if (generations.length() > 0) {
+            String text = generations.getJSONObject(0).getString("text").trim();
+            countTokens(jsonResponse, prompt, text);
+            responseCache.put(cacheKey, text);
+            return text;
+        }
+        return "No response from AI.";
+    }
+
+    // Streaming counterpart of callCohereAPI. A cached response is replayed as a single fragment;
+    // a fresh one is cached once the stream has completed. The stream is registered under the same key
+    // as non-streaming calls, so identical requests on either path share one HTTP call: fragments go
+    // to whoever started it, and a caller that joined an in-flight request gets the whole text at once.
+    String streamCohereAPI(String prompt, Consumer<String> onText) throws Exception {
+        String cacheKey = ResponseCache.key(prompt, DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            onText.accept(cached);
+            return cached;
+        }
+
+        AtomicBoolean streamed = new AtomicBoolean();
+        String text = inFlightRequests.execute(cacheKey, () -> {
+            streamed.set(true);
+            return requestStream(cacheKey, prompt, onText);
+        });
+        if (!streamed.get()) {
+            onText.accept(text);
+        }
+        return text;
+    }
+
+    private String requestStream(String cacheKey, String prompt, Consumer<String> onText) throws Exception {
+        JSONObject requestBody = generationRequest(prompt, DEFAULT_MAX_TOKENS, DEFAULT_TEMPERATURE);
+        String text = requestScheduler.execute(RequestScheduler.Priority.INTERACTIVE, RequestScheduler.estimateTokens(prompt, DEFAULT_MAX_TOKENS),
+                () -> cohereClient.streamGenerate(requestBody, onText)).trim();
+        countTokens(null, prompt, text);
+        if (text.isEmpty()) {
+            return "No response from AI.";
+        }
+        responseCache.put(cacheKey, text);
+        return text;
+    }
+
+    // Billed token counts when the API reports them (meta.billed_units), local estimates otherwise
+    private static void countTokens(JSONObject response, String prompt, String reply) {
+        JSONObject meta = response == null ? null : response.optJSONObject("meta");
+        JSONObject billed = meta == null ? null : meta.optJSONObject("billed_units");
+        if (billed != null && billed.has("input_tokens")) {
+            PROMPT_TOKENS.add(billed.optLong("input_tokens"));
+            RESPONSE_TOKENS.add(billed.optLong("output_tokens"));
+        } else {
+            PROMPT_TOKENS.add(PromptCompactor.estimateTokens(prompt));
+            RESPONSE_TOKENS.add(PromptCompactor.estimateTokens(reply));
+        }
+    }
+
+    private static JSONObject generationRequest(String prompt, int maxTokens, double temperature) {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("prompt", prompt);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("temperature", temperature);
+        return requestBody;
+    }
+
+    // --- Chat ---
+
+    // One chatbot turn about a resume, streamed into onText unless it is null. The session sends the
+    // resume once and then only new messages; turns for the same resume are answered in order.
+    String chat(ResumeDocument document, String message, Consumer<String> onText) throws Exception {
+        ChatSession session = chatSessions.get(document, text -> promptCompactor.compact(text, PromptCompactor.Task.CHAT));
+        boolean serverHistory = chatSessions.isServerHistory();
+        session.getLock().lockInterruptibly();
+        try {
+            String reply;
+            try {
+                reply = sendChat(session.request(message, serverHistory, CHAT_MAX_TOKENS), onText);
+            } catch (CohereClient.ApiException e) {
+                if (!serverHistory || e.getStatusCode() != 404) {
+                    throw e;
+                }
+                // The API no longer knows the conversation: seed a new one from local history
+                session.restart();
+                reply = sendChat(session.request(message, true, CHAT_MAX_TOKENS), onText);
+            }
+            session.record(message, reply, serverHistory);
+            chatSessions.save(session, new ChatSession.Turn(message, reply));
+            return reply;
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    // Turns so far in the conversation about this resume
+    int chatTurnCount(ResumeDocument document) {
+        return chatSessions.get(document, text -> promptCompactor.compact(text, PromptCompactor.Task.CHAT)).getTurnCount();
+    }
+
+    void resetChat(ResumeDocument document) {
+        chatSessions.reset(document);
+    }
+
+    private String sendChat(JSONObject body, Consumer<String> onText) throws Exception {
+        String prompt = body.getString("message") + body.optString("preamble") + body.optJSONArray("chat_history") + body.optJSONArray("documents");
+        int estimatedTokens = RequestScheduler.estimateTokens(prompt, CHAT_MAX_TOKENS);
+        if (onText != null) {
+            String reply = requestScheduler.execute(RequestScheduler.Priority.INTERACTIVE, estimatedTokens,
+                    () -> cohereClient.streamChat(body, onText)).trim();
+            countTokens(null, prompt, reply);
+            return reply;
+        }
+        String response = requestScheduler.execute(RequestScheduler.Priority.INTERACTIVE, estimatedTokens, () -> cohereClient.chat(body));
+        long started = System.nanoTime();
+        JSONObject jsonResponse = new JSONObject(response);
+        JSON_PARSE.recordSince(started);
+        String reply = jsonResponse.optString("text", "").trim();
+        countTokens(jsonResponse, prompt, reply);
+        return reply;
+    }
+
+    // Callbacks from a comparison run, made on the thread running compare() in upload order
+    interface ComparisonListener {
+        default void readFailed(File file, IOException error) {
+        }
+
+        default void localAnalysis(File file, String analysis, int score) {
+        }
+
+        default void aiAnalysis(File file, String analysis, int score, boolean aiScored) {
+        }
+
+        default void analysisFailed(File file, Exception error) {
+        }
+
+        default void grammarAnalysis(File file, String grammarAnalysis) {
+        }
+
+        default void grammarFailed(File file, Exception error) {
+        }
+
+        default void progress(int completed, int total) {
+        }
+    }
+
+    static final class Comparison {
+        final Map<File, String> analyses;
+        final Map<File, Integer> scores;
+        // Only resumes that had an AI grammar analysis
+        final Map<File, String> grammar;
+        final List<Entry<File, Integer>> ranking;
+        // Resumes answered from earlier results without a new analysis
+        final int reused;
+
+        Comparison(Map<File, String> analyses, Map<File, Integer> scores, Map<File, String> grammar,
+                   List<Entry<File, Integer>> ranking, int reused) {
+            this.analyses = analyses;
+            this.scores = scores;
+            this.grammar = grammar;
+            this.ranking = ranking;
+            this.reused = reused;
+        }
+    }
+
+    static final class Analysis {
+        final int atsScore;
+        final int interviewProbability;
+        final String analysis;
+        final String grammar;
+
+        Analysis(int atsScore, int interviewProbability, String analysis, String grammar) {
+            this.atsScore = atsScore;
+            this.interviewProbability = interviewProbability;
+            this.analysis = analysis;
+            this.grammar = grammar;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless front-end over ResumeAnalysisEngine for batch runs on servers:
+//
+//   analyze --in resumes/ --out results.jsonl [--parallel 16] [--local] [--combined]
+//   compare --in resumes/ [--top 10] [--out ranking.jsonl] [--report out/comparison]
+//   serve [--host 127.0.0.1] [--port 8080]
+//
+// analyze writes one JSON object per resume as soon as it finishes. The output file doubles as the
+// checkpoint: a rerun skips every resume whose content hash already has a successful line, so a crashed
+// run picks up where it stopped. Throughput stats go to stderr at the end.
+class ResumeAnalyzerCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURES = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "Usage:\n"
+            + "  analyze --in <dir|file.pdf>... --out <results.jsonl> [--parallel N] [--local] [--combined]\n"
+            + "  compare --in <dir|file.pdf>... [--top N] [--out <ranking.jsonl>] [--report <base name>]\n"
+            + "  serve [--host <address>] [--port N]\n";
+
+    public static void main(String[] args) {
+        Metrics.startDumpFromSystemProperties();
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        try {
+            // analyze sizes the AI call limit from --parallel unless resume.comparison.concurrency is set
+            ResumeAnalysisEngine engine = "analyze".equals(options.command)
+                    ? ResumeAnalysisEngine.fromSystemProperties(Integer.getInteger("resume.comparison.concurrency",
+                            options.parallel * ResumeAnalysisEngine.CALLS_PER_ANALYSIS))
+                    : ResumeAnalysisEngine.fromSystemProperties();
+            if ("serve".equals(options.command)) {
+                return serve(engine, options);
+            }
+            List<File> pdfs = PdfTextExtractor.collectPdfs(options.inputs);
+            return "analyze".equals(options.command) ? analyze(engine, pdfs, options) : compare(engine, pdfs, options);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+            return EXIT_FAILURES;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+    }
+
+    private static int analyze(ResumeAnalysisEngine engine, List<File> pdfs, Options options) throws IOException, InterruptedException {
+        Set<String> done = readCheckpoint(options.out);
+        AtomicInteger analyzed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong busyMillis = new AtomicLong();
+        long started = System.nanoTime();
+        if (!options.localOnly) {
+            System.err.printf("Analyzing %d resumes, %d at a time, with up to %d AI calls in flight%n",
+                    pdfs.size(), options.parallel, engine.getComparisonConcurrency());
+        }
+
+        // Each permit is one resume in memory, so parallelism also bounds the heap a run needs
+        Semaphore permits = new Semaphore(options.parallel);
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(options.out.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8))) {
+            for (File pdf : pdfs) {
+                permits.acquire();
+                // A task that dies before its line is written, whether from a failed write or an Error,
+                // still counts as failed so the run can't end with EXIT_OK
+                workers.execute(() -> {
+                    long fileStarted = System.nanoTime();
+                    JSONObject line = new JSONObject();
+                    line.put("file", pdf.getAbsolutePath());
+                    boolean counted = false;
+                    try {
+                        try {
+                            String contentHash = Hashes.sha256Hex(Files.readAllBytes(pdf.toPath()));
+                            if (done.contains(contentHash)) {
+                                skipped.incrementAndGet();
+                                counted = true;
+                                return;
+                            }
+                            ResumeDocument document = engine.readOnce(pdf, contentHash);
+                            AtsKeywordScorer.Result local = engine.localAtsScore(document);
+                            line.put("sha256", document.getContentHash());
+                            line.put("local_ats_score", local.score);
+                            if (options.localOnly) {
+                                line.put("ats_score", local.score);
+                                line.put("analysis", local.describe());
+                            } else {
+                                ResumeAnalysisEngine.Analysis analysis = engine.analyze(document, options.combined, RequestScheduler.Priority.BATCH);
+                                line.put("ats_score", analysis.atsScore);
+                                line.put("interview_probability", analysis.interviewProbability);
+                                line.put("analysis", analysis.analysis);
+                                line.put("grammar", analysis.grammar);
+                            }
+                        } catch (Exception e) {
+                            line.put("error", String.valueOf(e.getMessage()));
+                        } finally {
+                            permits.release();
+                        }
+                        long millis = (System.nanoTime() - fileStarted) / 1_000_000;
+                        busyMillis.addAndGet(millis);
+                        line.put("millis", millis);
+                        writeLine(out, line);
+                        (line.has("error") ? failed : analyzed).incrementAndGet();
+                        counted = true;
+                    } catch (IOException e) {
+                        System.err.println("Could not write the result for " + pdf + ": " + e.getMessage());
+                    } finally {
+                        if (!counted) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            workers.shutdown();
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Analyzed " + analyzed.get() + " of " + pdfs.size() + "...");
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        double seconds = Math.max(1, (System.nanoTime() - started) / 1_000_000) / 1000.0;
+        int processed = analyzed.get() + failed.get();
+        System.err.printf("Analyzed %d of %d resumes (%d already in checkpoint, %d failed) in %.1f s: %.1f resumes/s, %d ms mean per resume%n",
+                analyzed.get(), pdfs.size(), skipped.get(), failed.get(), seconds, processed / seconds,
+                processed == 0 ? 0 : busyMillis.get() / processed);
+        return failed.get() > 0 ? EXIT_FAILURES : EXIT_OK;
+    }
+
+    private static int compare(ResumeAnalysisEngine engine, List<File> pdfs, Options options) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        PdfTextExtractor.IngestReport report = engine.ingest(pdfs, document -> {
+        }, (file, e) -> System.err.println("Could not read " + file + ": " + e.getMessage()));
+        System.err.println(report.summary());
+        // Report order is input order, which keeps tie-breaking in the ranking deterministic
+        List<File> ingested = new ArrayList<>();
+        for (PdfTextExtractor.IngestResult result : report.results) {
+            if (result.isSuccess()) {
+                ingested.add(result.file);
+            }
+        }
+
+        int[] failures = {0};
+        ResumeAnalysisEngine.Comparison comparison = engine.compare(ingested, options.top, new ResumeAnalysisEngine.ComparisonListener() {
+            @Override
+            public void analysisFailed(File file, Exception error) {
+                System.err.println("Analysis failed for " + file + ": " + error.getMessage());
+                failures[0]++;
+            }
+        });
+
+        Writer out = options.out != null
+                ? Files.newBufferedWriter(options.out.toPath(), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        try {
+            int rank = 0;
+            for (Entry<File, Integer> entry : comparison.ranking) {
+                JSONObject line = new JSONObject();
+                line.put("rank", ++rank);
+                line.put("file", entry.getKey().getAbsolutePath());
+                line.put("ats_score", entry.getValue());
+                writeLine(out, line);
+            }
+        } finally {
+            out.flush();
+            if (options.out != null) {
+                out.close();
+            }
+        }
+        if (options.report != null) {
+            List<File> written = ComparisonReportExporter.fromSystemProperties().export(ComparisonReportExporter.rank(comparison), options.report);
+            System.err.println("Report written to " + written);
+        }
+        double seconds = Math.max(1, (System.nanoTime() - started) / 1_000_000) / 1000.0;
+        System.err.printf("Compared %d resumes in %.1f s: %.1f resumes/s%n", ingested.size(), seconds, ingested.size() / seconds);
+        return failures[0] > 0 || report.failureCount() > 0 ? EXIT_FAILURES : EXIT_OK;
+    }
+
+    // Runs the HTTP API until the process is stopped
+    private static int serve(ResumeAnalysisEngine engine, Options options) throws IOException, InterruptedException {
+        ResumeApiServer server = ResumeApiServer.fromSystemProperties(engine, options.host, options.port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.err.println("Resume API listening on " + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        Thread.currentThread().join();
+        return EXIT_OK;
+    }
+
+    // Lines are flushed one at a time so a crash loses at most the line being written
+    private static void writeLine(Writer out, JSONObject line) throws IOException {
+        synchronized (out) {
+            out.write(line.toString());
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    // Content hashes with a successful line in an earlier run's output. A torn last line from a crash
+    // (unparsable or missing its newline) is cut off so the appended results start on a line of their own.
+    static Set<String> readCheckpoint(File out) throws IOException {
+        Set<String> done = new HashSet<>();
+        if (!out.isFile()) {
+            return done;
+        }
+        long validLength = 0;
+        long position = 0;
+        for (String line : Files.readAllLines(out.toPath(), StandardCharsets.UTF_8)) {
+            position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (position > out.length()) {
+                break;
+            }
+            try {
+                JSONObject result = new JSONObject(line);
+                if (!result.has("error") && result.has("sha256")) {
+                    done.add(result.getString("sha256"));
+                }
+                validLength = position;
+            } catch (JSONException e) {
+                break;
+            }
+        }
+        if (validLength < out.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(out, "rw")) {
+                file.setLength(validLength);
+            }
+        }
+        if (!done.isEmpty()) {
+            System.err.println("Resuming: " + done.size() + " resumes already in " + out);
+        }
+        return done;
+    }
+
+    static final class Options {
+        String command;
+        final List<File> inputs = new ArrayList<>();
+        File out;
+        File report;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        int top = 10;
+        // Loopback unless asked otherwise: the API has no authentication
+        String host = "127.0.0.1";
+        int port = 8080;
+        boolean localOnly;
+        boolean combined;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            if (args.length == 0 || !(args[0].equals("analyze") || args[0].equals("compare") || args[0].equals("serve"))) {
+                throw new IllegalArgumentException("Unknown command: " + (args.length == 0 ? "(none)" : args[0]));
+            }
+            options.command = args[0];
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--in":
+                        // --in takes every following argument up to the next option
+                        while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                            options.inputs.add(new File(args[++i]));
+                        }
+                        break;
+                    case "--out":
+                        options.out = new File(value(args, ++i, "--out"));
+                        break;
+                    case "--report":
+                        options.report = new File(value(args, ++i, "--report"));
+                        break;
+                    case "--parallel":
+                        options.parallel = Math.max(1, number(args, ++i, "--parallel"));
+                        break;
+                    case "--top":
+                        options.top = Math.max(1, number(args, ++i, "--top"));
+                        break;
+                    case "--host":
+                        options.host = value(args, ++i, "--host");
+                        break;
+                    case "--port":
+                        options.port = number(args, ++i, "--port");
+                        break;
+                    case "--local":
+                        options.localOnly = true;
+                        break;
+                    case "--combined":
+                        options.combined = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (options.inputs.isEmpty() && !options.command.equals("serve")) {
+                throw new IllegalArgumentException("--in is required");
+            }
+            if (options.command.equals("analyze") && options.out == null) {
+                throw new IllegalArgumentException("--out is required for analyze");
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            return args[index];
+        }
+
+        private static int number(String[] args, int index, String option) {
+            try {
+                return Integer.parseInt(value(args, index, option));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(option + " needs a number");
+            }
+        }
+    }
+}
@@ -0,0 +1,608 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Embedded HTTP API over ResumeAnalysisEngine for programmatic, high-volume use:
+//
+//   POST   /resumes?name=cv.pdf   PDF bytes in the body; 201 with the resume id (its content hash)
+//   POST   /jobs/analyze          {"resume": id, "combined": false}            -> 202 + job
+//   POST   /jobs/compare          {"resumes": [id, ...], "top": 10}            -> 202 + job (all resumes if omitted)
+//   GET    /jobs/{id}             job status, progress and result
+//   GET    /jobs/{id}/events      NDJSON stream of status changes until the job finishes
+//   DELETE /jobs/{id}             cancels the job
+//   GET    /rankings?top=N        ranking from the most recent finished comparison
+//   POST   /chat                  {"resume": id, "message": "...", "reset": false} answered synchronously
+//   GET    /metrics               latency percentiles per stage and counters, as JSON
+//
+// Every connection is served on its own virtual thread. Jobs, chat and the text extraction of uploads
+// go through a fixed set of workers fed by a bounded queue; when the queue is full the request is
+// refused with 429 and a Retry-After header instead of piling up. There is no authentication, so the
+// server listens on loopback unless it is given another host.
+class ResumeApiServer {
+
+    private static final long RETRY_AFTER_SECONDS = 5;
+    // Finished jobs kept for polling before the oldest are dropped
+    private static final int RETAINED_JOBS = 10_000;
+
+    private final ResumeAnalysisEngine engine;
+    private final File uploadDir;
+    private final long maxUploadBytes;
+    private final HttpServer server;
+    private final ThreadPoolExecutor jobWorkers;
+    private final ScheduledExecutorService indexFlusher = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, File> resumes = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private volatile JSONArray latestRanking = new JSONArray();
+    private volatile boolean indexDirty;
+
+    ResumeApiServer(ResumeAnalysisEngine engine, String host, int port, File uploadDir, int workers, int queueCapacity, long maxUploadBytes) throws IOException {
+        this.engine = engine;
+        this.uploadDir = uploadDir;
+        this.maxUploadBytes = maxUploadBytes;
+        if (!uploadDir.isDirectory() && !uploadDir.mkdirs()) {
+            throw new IOException("Could not create upload directory " + uploadDir);
+        }
+        this.jobWorkers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofVirtual().name("api-job-", 0).factory());
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 4096);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/resumes", this::handleResumes);
+        this.server.createContext("/jobs", this::handleJobs);
+        this.server.createContext("/rankings", this::handleRankings);
+        this.server.createContext("/chat", this::handleChat);
+        this.server.createContext("/metrics", this::handleMetrics);
+        Metrics.gauge("server.jobs.queued", () -> jobWorkers.getQueue().size());
+        Metrics.gauge("server.jobs.running", jobWorkers::getActiveCount);
+    }
+
+    // resume.server.upload.dir, resume.server.workers, resume.server.queue and resume.server.max.upload.mb
+    static ResumeApiServer fromSystemProperties(ResumeAnalysisEngine engine, String host, int port) throws IOException {
+        return new ResumeApiServer(engine, host, port,
+                new File(System.getProperty("resume.server.upload.dir",
+                        System.getProperty("user.home") + File.separator + ".ai-resume-analyzer" + File.separator + "uploads")),
+                Integer.getInteger("resume.server.workers", 32),
+                Integer.getInteger("resume.server.queue", 1000),
+                Long.getLong("resume.server.max.upload.mb", 10) * 1024 * 1024);
+    }
+
+    void start() {
+        // Uploads from earlier runs are content-addressed files, so they can be served again right away
+        File[] existing = uploadDir.listFiles((dir, name) -> name.endsWith(".pdf"));
+        if (existing != null) {
+            for (File file : existing) {
+                resumes.put(file.getName().substring(0, file.getName().length() - 4), file);
+            }
+        }
+        indexFlusher.scheduleWithFixedDelay(this::flushIndex, 30, 30, TimeUnit.SECONDS);
+        server.start();
+    }
+
+    void stop() {
+        server.stop(1);
+        jobWorkers.shutdownNow();
+        indexFlusher.shutdownNow();
+        flushIndex();
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void flushIndex() {
+        if (indexDirty) {
+            indexDirty = false;
+            engine.saveResumeIndex();
+        }
+    }
+
+    // --- Handlers ---
+
+    private void handleResumes(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST to upload a PDF");
+                return;
+            }
+            byte[] pdf = readBody(exchange, maxUploadBytes);
+            if (pdf == null) {
+                sendError(exchange, 413, "Upload exceeds " + maxUploadBytes + " bytes");
+                return;
+            }
+            String id = Hashes.sha256Hex(pdf);
+            File target = new File(uploadDir, id + ".pdf");
+            if (!target.isFile()) {
+                File partial = new File(uploadDir, id + ".part");
+                Files.write(partial.toPath(), pdf);
+                Files.move(partial.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            // Extraction is CPU-bound, so it waits for a job worker like everything else that is
+            Future<ResumeDocument> ingested = submit(exchange, () -> engine.ingest(target));
+            if (ingested == null) {
+                return;
+            }
+            try {
+                ingested.get();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof IOException)) {
+                    throw new IOException(e.getCause());
+                }
+                Files.deleteIfExists(target.toPath());
+                sendError(exchange, 422, "Not a readable PDF: " + e.getCause().getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ingested.cancel(true);
+                return;
+            }
+            resumes.put(id, target);
+            indexDirty = true;
+            JSONObject body = new JSONObject();
+            body.put("id", id);
+            body.put("name", queryParameters(exchange).getOrDefault("name", target.getName()));
+            send(exchange, 201, body);
+        }
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/jobs/?", "").split("/");
+            String method = exchange.getRequestMethod();
+            if ("POST".equals(method) && path.length == 1 && ("analyze".equals(path[0]) || "compare".equals(path[0]))) {
+                submitJob(exchange, path[0]);
+                return;
+            }
+            Job job = findJob(path[0]);
+            if (job == null) {
+                sendError(exchange, 404, "Unknown job");
+            } else if ("GET".equals(method) && path.length == 1) {
+                send(exchange, 200, job.toJson());
+            } else if ("GET".equals(method) && path.length == 2 && "events".equals(path[1])) {
+                streamEvents(exchange, job);
+            } else if ("DELETE".equals(method) && path.length == 1) {
+                job.cancel();
+                send(exchange, 200, job.toJson());
+            } else {
+                sendError(exchange, 405, "Unsupported request");
+            }
+        }
+    }
+
+    private void submitJob(HttpExchange exchange, String type) throws IOException {
+        JSONObject request = readJson(exchange);
+        if (request == null) {
+            return;
+        }
+        Job job;
+        if ("analyze".equals(type)) {
+            File resume = resumes.get(request.optString("resume"));
+            if (resume == null) {
+                sendError(exchange, 404, "Unknown resume");
+                return;
+            }
+            boolean combined = request.optBoolean("combined", false);
+            job = new Job(type, progress -> analyzeJob(resume, combined));
+        } else {
+            List<File> files = new ArrayList<>();
+            JSONArray ids = request.optJSONArray("resumes");
+            if (ids == null) {
+                files.addAll(resumes.values());
+            } else {
+                for (int i = 0; i < ids.length(); i++) {
+                    File resume = resumes.get(ids.optString(i));
+                    if (resume == null) {
+                        sendError(exchange, 404, "Unknown resume " + ids.optString(i));
+                        return;
+                    }
+                    files.add(resume);
+                }
+            }
+            int top = Math.max(1, request.optInt("top", 10));
+            job = new Job(type, progress -> compareJob(files, top, progress));
+        }
+
+        if (!admit(exchange, job)) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.id);
+        send(exchange, 202, job.toJson());
+    }
+
+    private JSONObject analyzeJob(File resume, boolean combined) throws Exception {
+        ResumeDocument document = engine.document(resume);
+        ResumeAnalysisEngine.Analysis analysis = engine.analyze(document, combined, RequestScheduler.Priority.BATCH);
+        JSONObject result = new JSONObject();
+        result.put("resume", document.getContentHash());
+        result.put("local_ats_score", engine.localAtsScore(document).score);
+        result.put("ats_score", analysis.atsScore);
+        result.put("interview_probability", analysis.interviewProbability);
+        result.put("analysis", analysis.analysis);
+        result.put("grammar", analysis.grammar);
+        return result;
+    }
+
+    private JSONObject compareJob(List<File> files, int top, Job progress) throws Exception {
+        ResumeAnalysisEngine.Comparison comparison = engine.compare(files, top, new ResumeAnalysisEngine.ComparisonListener() {
+            @Override
+            public void progress(int completed, int total) {
+                progress.progress(completed, total);
+            }
+        });
+        JSONArray ranking = new JSONArray();
+        int rank = 0;
+        for (Entry<File, Integer> entry : comparison.ranking) {
+            JSONObject line = new JSONObject();
+            line.put("rank", ++rank);
+            line.put("resume", entry.getKey().getName().replaceAll("\\.pdf$", ""));
+            line.put("ats_score", entry.getValue());
+            ranking.put(line);
+        }
+        latestRanking = ranking;
+        JSONObject result = new JSONObject();
+        result.put("ranking", ranking);
+        result.put("compared", comparison.scores.size());
+        result.put("reused", comparison.reused);
+        return result;
+    }
+
+    private void handleRankings(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int top = parseInt(queryParameters(exchange).get("top"), Integer.MAX_VALUE);
+            JSONArray ranking = latestRanking;
+            JSONArray limited = new JSONArray();
+            for (int i = 0; i < ranking.length() && i < top; i++) {
+                limited.put(ranking.get(i));
+            }
+            JSONObject body = new JSONObject();
+            body.put("ranking", limited);
+            send(exchange, 200, body);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            send(exchange, 200, Metrics.snapshot());
+        }
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST to chat");
+                return;
+            }
+            JSONObject request = readJson(exchange);
+            if (request == null) {
+                return;
+            }
+            File resume = resumes.get(request.optString("resume"));
+            String message = request.optString("message", "").trim();
+            if (resume == null || message.isEmpty()) {
+                sendError(exchange, 400, "Both resume and message are required");
+                return;
+            }
+            // Chat shares the job workers so it is subject to the same backpressure, but the caller waits
+            // for it. It is not a job, so the conversation can't be read back through /jobs/{id}.
+            Future<JSONObject> reply = submit(exchange, () -> {
+                ResumeDocument document = engine.document(resume);
+                if (request.optBoolean("reset", false)) {
+                    engine.resetChat(document);
+                }
+                JSONObject result = new JSONObject();
+                result.put("reply", engine.chat(document, message, null));
+                result.put("turns", engine.chatTurnCount(document));
+                return result;
+            });
+            if (reply == null) {
+                return;
+            }
+            try {
+                send(exchange, 200, ResumeAnalysisEngine.awaitComparisonJob(reply));
+            } catch (Exception e) {
+                sendError(exchange, 502, "Chat failed: " + e.getMessage());
+            } finally {
+                reply.cancel(true);
+            }
+        }
+    }
+
+    // Queues the job, or answers 429 with Retry-After when the queue is full
+    private boolean admit(HttpExchange exchange, Job job) throws IOException {
+        job.future = submit(exchange, job::run);
+        if (job.future == null) {
+            return false;
+        }
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            if (jobs.size() > RETAINED_JOBS) {
+                jobs.values().removeIf(retained -> retained.isFinished() && jobs.size() > RETAINED_JOBS);
+            }
+        }
+        return true;
+    }
+
+    // Queues work on the job workers; null after answering 429 with Retry-After when the queue is full
+    private <T> Future<T> submit(HttpExchange exchange, Callable<T> work) throws IOException {
+        try {
+            return jobWorkers.submit(work);
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+            sendError(exchange, 429, "Job queue is full, retry later");
+            return null;
+        }
+    }
+
+    private Job findJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    // Writes the job's status as one JSON line whenever it changes, until it finishes or the client leaves
+    private void streamEvents(HttpExchange exchange, Job job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        long version = -1;
+        while (true) {
+            JSONObject status;
+            long seen;
+            boolean finished;
+            job.lock.lock();
+            try {
+                seen = job.version;
+                status = job.toJson();
+                finished = job.isFinished();
+            } finally {
+                job.lock.unlock();
+            }
+            if (seen != version) {
+                version = seen;
+                out.write((status + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            if (finished) {
+                return;
+            }
+            try {
+                job.awaitChange(version, 15_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // --- HTTP helpers ---
+
+    // The body, or null if it is larger than limit
+    private static byte[] readBody(HttpExchange exchange, long limit) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > limit) {
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    // Parsed JSON body; sends 400 and returns null when the body is missing or malformed
+    private static JSONObject readJson(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange, 1024 * 1024);
+        if (body == null) {
+            sendError(exchange, 413, "Request body too large");
+            return null;
+        }
+        if (body.length == 0) {
+            return new JSONObject();
+        }
+        try {
+            return new JSONObject(new String(body, StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            sendError(exchange, 400, "Malformed JSON: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return value == null ? fallback : Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JSONObject body = new JSONObject();
+        body.put("error", message);
+        send(exchange, status, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    interface JobBody {
+        JSONObject run(Job job) throws Exception;
+    }
+
+    static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String type;
+        private final JobBody body;
+        private final long createdMillis = System.currentTimeMillis();
+        volatile Future<JSONObject> future;
+        // A lock rather than a monitor so event streams waiting on virtual threads don't pin their carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private String state = "queued";
+        private int completed;
+        private int total;
+        private JSONObject result;
+        private String error;
+        // Bumped on every change so event streams can tell whether there is anything new to send
+        private long version;
+
+        Job(String type, JobBody body) {
+            this.type = type;
+            this.body = body;
+        }
+
+        JSONObject run() throws Exception {
+            update("running", null, null);
+            try {
+                JSONObject output = body.run(this);
+                update("succeeded", output, null);
+                return output;
+            } catch (InterruptedException e) {
+                update("cancelled", null, null);
+                throw e;
+            } catch (Exception e) {
+                update("failed", null, String.valueOf(e.getMessage()));
+                throw e;
+            }
+        }
+
+        void cancel() {
+            Future<JSONObject> running = future;
+            if (running != null && !running.isDone()) {
+                // Marked first so the interrupted worker's own failure doesn't overwrite the state
+                update("cancelled", null, null);
+                running.cancel(true);
+            }
+        }
+
+        void progress(int completed, int total) {
+            lock.lock();
+            try {
+                this.completed = completed;
+                this.total = total;
+                version++;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void update(String state, JSONObject result, String error) {
+            lock.lock();
+            try {
+                if (isFinished()) {
+                    return;
+                }
+                this.state = state;
+                this.result = result;
+                this.error = error;
+                version++;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFinished() {
+            lock.lock();
+            try {
+                return state.equals("succeeded") || state.equals("failed") || state.equals("cancelled");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitChange(long seenVersion, long timeoutMillis) throws InterruptedException {
+            lock.lock();
+            try {
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                while (version == seenVersion && !isFinished() && remainingNanos > 0) {
+                    remainingNanos = changed.awaitNanos(remainingNanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        JSONObject toJson() {
+            lock.lock();
+            try {
+                return buildJson();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private JSONObject buildJson() {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("type", type);
+            json.put("state", state);
+            json.put("created", createdMillis);
+            if (total > 0) {
+                json.put("completed", completed);
+                json.put("total", total);
+            }
+            if (result != null) {
+                json.put("result", result);
+            }
+            if (error != null) {
+                json.put("error", error);
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// One uploaded resume: its extracted text, the SHA-256 of the file's bytes, the file metadata the
+// text was extracted from, and any artifacts derived from the text (sections, token estimates...).
+// Derived artifacts are computed once on first use and live as long as the document does.
+class ResumeDocument {
+
+    private final File file;
+    private final String text;
+    private final String contentHash;
+    private final long lastModified;
+    private final long length;
+    private final Map<String, Object> derived = new ConcurrentHashMap<>();
+
+    ResumeDocument(File file, String text, String contentHash, long lastModified, long length) {
+        this.file = file;
+        this.text = text;
+        this.contentHash = contentHash;
+        this.lastModified = lastModified;
+        this.length = length;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    String getContentHash() {
+        return contentHash;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    // Same content seen under a newer mtime: keep the text and derived artifacts
+    ResumeDocument withFileMetadata(long newLastModified, long newLength) {
+        ResumeDocument refreshed = new ResumeDocument(file, text, contentHash, newLastModified, newLength);
+        refreshed.derived.putAll(derived);
+        return refreshed;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T derived(String key, Function<ResumeDocument, T> compute) {
+        return (T) derived.computeIfAbsent(key, k -> compute.apply(this));
+    }
+
+    Map<String, String> getSections() {
+        return derived("sections", doc -> ResumeSections.split(doc.text));
+    }
+
+    int getEstimatedTokens() {
+        return derived("tokens", doc -> RequestScheduler.estimateTokens(doc.text, 0));
+    }
+}
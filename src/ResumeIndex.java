@@ -0,0 +1,682 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// Positional inverted index over uploaded resume text and detected skills. Each term's postings are
+// a varint-encoded byte stream of (doc delta, frequency, position deltas...), so the index stays
+// compact and is appended to as resumes are uploaded. A re-uploaded resume whose content changed is
+// tombstoned and indexed again under a new document id.
+//
+// On disk the index is a snapshot of the postings followed by a log of per-document records. save()
+// appends only the documents added or removed since the last save; the file is rewritten, without
+// tombstoned documents, once tombstones or the log outgrow the snapshot.
+//
+// Query syntax: words are ANDed, OR separates alternatives, -word or NOT word excludes, "quoted text"
+// is a phrase and skill:name (spaces in the name written as -) matches a detected skill.
+class ResumeIndex {
+
+    private static final int FORMAT_VERSION = 2;
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    // Compaction waits for this many tombstones, or a log this large, so small indexes aren't rewritten on every save
+    private static final int COMPACT_MIN_TOMBSTONES = 64;
+    private static final long COMPACT_MIN_LOG_BYTES = 1024 * 1024;
+    static final String SKILL_PREFIX = "skill:";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final List<String> docPaths = new ArrayList<>();
+    private final List<String> docHashes = new ArrayList<>();
+    private final Map<String, Integer> docIdsByPath = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    // Log records not yet written to the index file
+    private final List<byte[]> unsaved = new ArrayList<>();
+
+    // Serializes saves; the index itself stays readable while the log is appended
+    private final ReentrantLock saveLock = new ReentrantLock();
+    // The file this index was last loaded from or saved to (null forces a full rewrite), the length it
+    // had then and how much of it is the snapshot rather than appended log
+    private File savedFile;
+    private long savedLength;
+    private long snapshotLength;
+
+    // Indexes the document unless the same content is already indexed for that file
+    void update(File file, String contentHash, String text, Collection<String> skills) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        List<String> tokens = tokenize(text);
+        for (int position = 0; position < tokens.size(); position++) {
+            positions.computeIfAbsent(tokens.get(position), k -> new ArrayList<>()).add(position);
+        }
+        for (String skill : skills) {
+            positions.computeIfAbsent(skillTerm(skill), k -> new ArrayList<>()).add(0);
+        }
+        String path = file.getAbsolutePath();
+        lock.writeLock().lock();
+        try {
+            if (add(path, contentHash, positions)) {
+                unsaved.add(addRecord(path, contentHash, positions));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(File file) {
+        String path = file.getAbsolutePath();
+        lock.writeLock().lock();
+        try {
+            if (removePath(path)) {
+                unsaved.add(removeRecord(path));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock; false if the same content is already indexed for the path
+    private boolean add(String path, String contentHash, Map<String, List<Integer>> positions) {
+        Integer existing = docIdsByPath.get(path);
+        if (existing != null) {
+            if (docHashes.get(existing).equals(contentHash)) {
+                return false;
+            }
+            deleted.set(existing);
+        }
+        int docId = docPaths.size();
+        docPaths.add(path);
+        docHashes.add(contentHash);
+        docIdsByPath.put(path, docId);
+        for (Map.Entry<String, List<Integer>> term : positions.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new PostingList()).add(docId, term.getValue());
+        }
+        return true;
+    }
+
+    // Caller holds the write lock
+    private boolean removePath(String path) {
+        Integer docId = docIdsByPath.remove(path);
+        if (docId == null) {
+            return false;
+        }
+        deleted.set(docId);
+        return true;
+    }
+
+    // Content hash of every indexed file, in the order they were indexed
+    Map<File, String> documents() {
+        lock.readLock().lock();
+        try {
+            Map<File, String> documents = new LinkedHashMap<>();
+            for (int docId = deleted.nextClearBit(0); docId < docPaths.size(); docId = deleted.nextClearBit(docId + 1)) {
+                documents.put(new File(docPaths.get(docId)), docHashes.get(docId));
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByPath.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Matching files in the order they were indexed
+    List<File> search(String query) {
+        List<List<Clause>> alternatives = parse(query);
+        lock.readLock().lock();
+        try {
+            BitSet matches = new BitSet();
+            for (List<Clause> conjunction : alternatives) {
+                matches.or(evaluate(conjunction));
+            }
+            matches.andNot(deleted);
+            List<File> files = new ArrayList<>();
+            for (int docId = matches.nextSetBit(0); docId >= 0; docId = matches.nextSetBit(docId + 1)) {
+                files.add(new File(docPaths.get(docId)));
+            }
+            return files;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet evaluate(List<Clause> conjunction) {
+        BitSet result = null;
+        for (Clause clause : conjunction) {
+            if (!clause.negated) {
+                BitSet docs = clause.terms.size() == 1 ? termDocs(clause.terms.get(0)) : phraseDocs(clause.terms);
+                if (result == null) {
+                    result = docs;
+                } else {
+                    result.and(docs);
+                }
+            }
+        }
+        if (result == null) {
+            // A purely negative query starts from every live document
+            result = new BitSet();
+            result.set(0, docPaths.size());
+        }
+        for (Clause clause : conjunction) {
+            if (clause.negated) {
+                result.andNot(clause.terms.size() == 1 ? termDocs(clause.terms.get(0)) : phraseDocs(clause.terms));
+            }
+        }
+        return result;
+    }
+
+    private BitSet termDocs(String term) {
+        BitSet docs = new BitSet();
+        PostingList list = postings.get(term);
+        if (list != null) {
+            list.collectDocs(docs);
+        }
+        return docs;
+    }
+
+    private BitSet phraseDocs(List<String> terms) {
+        // Narrow to documents containing every term first, then check positions only for those
+        BitSet candidates = null;
+        for (String term : terms) {
+            BitSet docs = termDocs(term);
+            if (candidates == null) {
+                candidates = docs;
+            } else {
+                candidates.and(docs);
+            }
+        }
+        if (candidates == null || candidates.isEmpty()) {
+            return new BitSet();
+        }
+        BitSet candidateDocs = candidates;
+        List<Map<Integer, int[]>> termPositions = new ArrayList<>();
+        for (String term : terms) {
+            Map<Integer, int[]> byDoc = new HashMap<>();
+            postings.get(term).forEach((docId, positions) -> {
+                if (candidateDocs.get(docId)) {
+                    byDoc.put(docId, positions);
+                }
+            });
+            termPositions.add(byDoc);
+        }
+
+        BitSet docs = new BitSet();
+        for (Map.Entry<Integer, int[]> first : termPositions.get(0).entrySet()) {
+            int docId = first.getKey();
+            for (int start : first.getValue()) {
+                boolean phrase = true;
+                for (int t = 1; t < termPositions.size() && phrase; t++) {
+                    int[] positions = termPositions.get(t).get(docId);
+                    phrase = positions != null && Arrays.binarySearch(positions, start + t) >= 0;
+                }
+                if (phrase) {
+                    docs.set(docId);
+                    break;
+                }
+            }
+        }
+        return docs;
+    }
+
+    // Appends the changes since the last save, or rewrites the file when it has to be compacted or
+    // isn't the one this index was read from
+    void save(File file) throws IOException {
+        saveLock.lock();
+        try {
+            List<byte[]> records;
+            lock.writeLock().lock();
+            try {
+                boolean rewrite = !file.equals(savedFile) || file.length() != savedLength
+                        || deleted.cardinality() >= Math.max(COMPACT_MIN_TOMBSTONES, docIdsByPath.size() / 4)
+                        || savedLength - snapshotLength > Math.max(COMPACT_MIN_LOG_BYTES, snapshotLength);
+                if (rewrite) {
+                    compact();
+                    writeSnapshot(file);
+                    unsaved.clear();
+                    return;
+                }
+                if (unsaved.isEmpty()) {
+                    return;
+                }
+                records = new ArrayList<>(unsaved);
+                unsaved.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            appendRecords(file, records);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private void appendRecords(File file, List<byte[]> records) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        } catch (IOException e) {
+            // The file may now end in a partial record; the next save rewrites it from memory
+            savedFile = null;
+            throw e;
+        }
+        savedLength = file.length();
+    }
+
+    // Drops tombstoned documents and renumbers the rest, keeping their order. Caller holds the write lock.
+    private void compact() {
+        if (deleted.isEmpty()) {
+            return;
+        }
+        int[] newIds = new int[docPaths.size()];
+        List<String> paths = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        for (int docId = 0; docId < docPaths.size(); docId++) {
+            newIds[docId] = deleted.get(docId) ? -1 : paths.size();
+            if (!deleted.get(docId)) {
+                paths.add(docPaths.get(docId));
+                hashes.add(docHashes.get(docId));
+            }
+        }
+        Map<String, PostingList> compacted = new HashMap<>();
+        for (Map.Entry<String, PostingList> term : postings.entrySet()) {
+            PostingList live = new PostingList();
+            term.getValue().forEach((docId, positions) -> {
+                if (newIds[docId] >= 0) {
+                    live.add(newIds[docId], positions);
+                }
+            });
+            if (live.length > 0) {
+                compacted.put(term.getKey(), live);
+            }
+        }
+        postings.clear();
+        postings.putAll(compacted);
+        docPaths.clear();
+        docPaths.addAll(paths);
+        docHashes.clear();
+        docHashes.addAll(hashes);
+        docIdsByPath.clear();
+        for (int docId = 0; docId < paths.size(); docId++) {
+            docIdsByPath.put(paths.get(docId), docId);
+        }
+        deleted.clear();
+    }
+
+    // Caller holds the write lock and has compacted the index, so every document is live
+    private void writeSnapshot(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(docPaths.size());
+            for (int docId = 0; docId < docPaths.size(); docId++) {
+                out.writeUTF(docPaths.get(docId));
+                out.writeUTF(docHashes.get(docId));
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, PostingList> term : postings.entrySet()) {
+                out.writeUTF(term.getKey());
+                term.getValue().write(out);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedFile = file;
+        savedLength = file.length();
+        snapshotLength = savedLength;
+    }
+
+    // Reads the snapshot and replays the log after it. A log cut short by a crash ends at the last
+    // complete record, and the next save rewrites the file.
+    static ResumeIndex load(File file) throws IOException {
+        ResumeIndex index = new ResumeIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION && version != 1) {
+                throw new IOException("Unsupported index format " + version);
+            }
+            int docCount = in.readInt();
+            for (int docId = 0; docId < docCount; docId++) {
+                String path = in.readUTF();
+                index.docPaths.add(path);
+                index.docHashes.add(in.readUTF());
+                // Format 1 was a full snapshot with tombstones and no log; the next save rewrites it
+                if (version == 1 && in.readBoolean()) {
+                    index.deleted.set(docId);
+                } else {
+                    index.docIdsByPath.put(path, docId);
+                }
+            }
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                index.postings.put(in.readUTF(), PostingList.read(in));
+            }
+            long offset = file.length() - in.available();
+            index.snapshotLength = offset;
+            byte[] record;
+            while ((record = readRecord(in)) != null) {
+                index.replay(record);
+                offset += record.length;
+            }
+            index.savedFile = version == FORMAT_VERSION ? file : null;
+            index.savedLength = offset;
+        }
+        return index;
+    }
+
+    // --- Log records: payload length, kind, CRC32 of the payload, payload ---
+
+    private static byte[] addRecord(String path, String contentHash, Map<String, List<Integer>> positions) {
+        return record(ADD, out -> {
+            out.writeUTF(path);
+            out.writeUTF(contentHash);
+            out.writeInt(positions.size());
+            for (Map.Entry<String, List<Integer>> term : positions.entrySet()) {
+                out.writeUTF(term.getKey());
+                out.writeInt(term.getValue().size());
+                for (int position : term.getValue()) {
+                    out.writeInt(position);
+                }
+            }
+        });
+    }
+
+    private static byte[] removeRecord(String path) {
+        return record(REMOVE, out -> out.writeUTF(path));
+    }
+
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] record(byte kind, RecordBody body) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            body.write(new DataOutputStream(payload));
+            ByteArrayOutputStream record = new ByteArrayOutputStream(payload.size() + 9);
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeInt(payload.size());
+            out.writeByte(kind);
+            out.writeInt(crc(payload.toByteArray()));
+            payload.writeTo(out);
+            return record.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The whole record, or null at the end of the log or at a torn or corrupt record
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > in.available()) {
+                return null;
+            }
+            byte[] record = new byte[length + 9];
+            ByteBuffer.wrap(record).putInt(length);
+            in.readFully(record, 4, length + 5);
+            byte kind = record[4];
+            if ((kind != ADD && kind != REMOVE) || crc(Arrays.copyOfRange(record, 9, record.length)) != ByteBuffer.wrap(record).getInt(5)) {
+                return null;
+            }
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void replay(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 9, record.length - 9));
+        String path = in.readUTF();
+        if (record[4] == REMOVE) {
+            removePath(path);
+            return;
+        }
+        String contentHash = in.readUTF();
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int terms = in.readInt(); terms > 0; terms--) {
+            String term = in.readUTF();
+            List<Integer> termPositions = new ArrayList<>();
+            for (int count = in.readInt(); count > 0; count--) {
+                termPositions.add(in.readInt());
+            }
+            positions.put(term, termPositions);
+        }
+        add(path, contentHash, positions);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    // Lower-cased words; +, # and inner dots are kept so c++, c# and node.js survive as single terms
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c) || ((c == '+' || c == '#' || c == '.') && token.length() > 0)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                while (token.length() > 0 && token.charAt(token.length() - 1) == '.') {
+                    token.setLength(token.length() - 1);
+                }
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                }
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    static String skillTerm(String skill) {
+        return SKILL_PREFIX + skill.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "-");
+    }
+
+    private static List<List<Clause>> parse(String query) {
+        List<List<Clause>> alternatives = new ArrayList<>();
+        List<Clause> current = new ArrayList<>();
+        boolean negateNext = false;
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            boolean negated = negateNext;
+            negateNext = false;
+            if (c == '-') {
+                negated = true;
+                i++;
+                if (i >= query.length()) {
+                    break;
+                }
+                c = query.charAt(i);
+            }
+
+            String raw;
+            boolean quoted = c == '"';
+            if (quoted) {
+                int end = query.indexOf('"', i + 1);
+                raw = query.substring(i + 1, end < 0 ? query.length() : end);
+                i = end < 0 ? query.length() : end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                raw = query.substring(i, end);
+                i = end;
+            }
+
+            if (!quoted && raw.equals("OR")) {
+                if (!current.isEmpty()) {
+                    alternatives.add(current);
+                }
+                current = new ArrayList<>();
+                continue;
+            }
+            if (!quoted && raw.equals("NOT")) {
+                negateNext = true;
+                continue;
+            }
+            List<String> terms = !quoted && raw.toLowerCase(Locale.ROOT).startsWith(SKILL_PREFIX)
+                    ? List.of(raw.toLowerCase(Locale.ROOT))
+                    : tokenize(raw);
+            if (!terms.isEmpty()) {
+                current.add(new Clause(terms, negated));
+            }
+        }
+        if (!current.isEmpty()) {
+            alternatives.add(current);
+        }
+        return alternatives;
+    }
+
+    private static final class Clause {
+        final List<String> terms;
+        final boolean negated;
+
+        Clause(List<String> terms, boolean negated) {
+            this.terms = terms;
+            this.negated = negated;
+        }
+    }
+
+    private interface PostingVisitor {
+        void visit(int docId, int[] positions);
+    }
+
+    // Postings for one term as varints: doc id delta, term frequency, then position deltas
+    private static final class PostingList {
+        private byte[] data = new byte[16];
+        private int length;
+        private int lastDocId;
+
+        void add(int docId, List<Integer> positions) {
+            writeVarint(docId - lastDocId);
+            lastDocId = docId;
+            writeVarint(positions.size());
+            int previous = 0;
+            for (int position : positions) {
+                writeVarint(position - previous);
+                previous = position;
+            }
+        }
+
+        void add(int docId, int[] positions) {
+            writeVarint(docId - lastDocId);
+            lastDocId = docId;
+            writeVarint(positions.length);
+            int previous = 0;
+            for (int position : positions) {
+                writeVarint(position - previous);
+                previous = position;
+            }
+        }
+
+        void forEach(PostingVisitor visitor) {
+            int[] offset = {0};
+            int docId = 0;
+            while (offset[0] < length) {
+                docId += readVarint(offset);
+                int[] positions = new int[readVarint(offset)];
+                int position = 0;
+                for (int p = 0; p < positions.length; p++) {
+                    position += readVarint(offset);
+                    positions[p] = position;
+                }
+                visitor.visit(docId, positions);
+            }
+        }
+
+        // Doc ids only; positions are skipped without being decoded into arrays
+        void collectDocs(BitSet docs) {
+            int[] offset = {0};
+            int docId = 0;
+            while (offset[0] < length) {
+                docId += readVarint(offset);
+                docs.set(docId);
+                for (int remaining = readVarint(offset); remaining > 0; remaining--) {
+                    while ((data[offset[0]++] & 0x80) != 0) {
+                        // continuation bytes of the skipped position
+                    }
+                }
+            }
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private int readVarint(int[] offset) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset[0]++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(lastDocId);
+            out.writeInt(length);
+            out.write(data, 0, length);
+        }
+
+        static PostingList read(DataInputStream in) throws IOException {
+            PostingList list = new PostingList();
+            list.lastDocId = in.readInt();
+            list.length = in.readInt();
+            list.data = new byte[Math.max(16, list.length)];
+            in.readFully(list.data, 0, list.length);
+            return list;
+        }
+    }
+}
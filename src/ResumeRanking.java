@@ -0,0 +1,94 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Comparison results keyed by resume content hash, ranked in a skip list. A new or changed resume
+// costs one analysis and an O(log n) insert; everything already ranked is reused as is, and the top N
+// are read straight off the head of the list.
+class ResumeRanking {
+
+    // Best score first; ties keep the order results were first added in
+    private static final Comparator<Result> ORDER = Comparator.comparingInt((Result result) -> result.score).reversed()
+            .thenComparingLong(result -> result.sequence);
+
+    private final ConcurrentSkipListSet<Result> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<String, Result> byHash = new ConcurrentHashMap<>();
+    private final Map<File, String> hashByFile = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    Result get(String contentHash) {
+        return byHash.get(contentHash);
+    }
+
+    // Adds or replaces the result for its content hash. A file whose content changed drops the
+    // result for its old content so stale scores never linger in the ranking.
+    synchronized Result put(File file, String contentHash, int score, boolean aiAnalyzed, String analysis, String grammarAnalysis) {
+        Result previous = byHash.get(contentHash);
+        Result result = new Result(file.getAbsoluteFile(), contentHash, score, aiAnalyzed, analysis, grammarAnalysis,
+                previous != null ? previous.sequence : sequence.getAndIncrement());
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        String staleHash = hashByFile.put(result.file, contentHash);
+        if (staleHash != null && !staleHash.equals(contentHash)) {
+            Result stale = byHash.remove(staleHash);
+            if (stale != null) {
+                ranking.remove(stale);
+            }
+        }
+        byHash.put(contentHash, result);
+        ranking.add(result);
+        return result;
+    }
+
+    // The best n results among the given content hashes, best first
+    List<Result> top(int n, Set<String> contentHashes) {
+        List<Result> top = new ArrayList<>();
+        for (Result result : ranking) {
+            if (top.size() >= n) {
+                break;
+            }
+            if (contentHashes.contains(result.contentHash)) {
+                top.add(result);
+            }
+        }
+        return top;
+    }
+
+    int size() {
+        return byHash.size();
+    }
+
+    synchronized void clear() {
+        ranking.clear();
+        byHash.clear();
+        hashByFile.clear();
+    }
+
+    static final class Result {
+        final File file;
+        final String contentHash;
+        final int score;
+        // False when the score came from the local scorer only
+        final boolean aiAnalyzed;
+        final String analysis;
+        final String grammarAnalysis;
+        private final long sequence;
+
+        Result(File file, String contentHash, int score, boolean aiAnalyzed, String analysis, String grammarAnalysis, long sequence) {
+            this.file = file;
+            this.contentHash = contentHash;
+            this.score = score;
+            this.aiAnalyzed = aiAnalyzed;
+            this.analysis = analysis;
+            this.grammarAnalysis = grammarAnalysis;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Splits resume text into its conventional sections by recognising heading lines such as
+// "EXPERIENCE" or "Technical Skills:". Text before the first heading is kept under HEADER.
+final class ResumeSections {
+
+    static final String HEADER = "header";
+
+    private static final Map<String, String> HEADING_ALIASES = new HashMap<>();
+    private static final Pattern LEADING_DECORATION = Pattern.compile("^[^\\p{L}]+");
+    private static final Pattern TRAILING_DECORATION = Pattern.compile("[\\s:\\-–|]+$");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    static {
+        alias("summary", "summary", "profile", "objective", "about me", "professional summary", "career objective", "career summary");
+        alias("experience", "experience", "work experience", "professional experience", "employment history", "work history", "employment", "relevant experience");
+        alias("education", "education", "academic background", "education and training", "academics", "qualifications");
+        alias("skills", "skills", "technical skills", "core competencies", "key skills", "skills and abilities", "competencies", "technologies");
+        alias("projects", "projects", "personal projects", "academic projects", "key projects");
+        alias("certifications", "certifications", "certificates", "licenses and certifications", "courses");
+        alias("awards", "awards", "achievements", "honors", "honours", "accomplishments");
+        alias("publications", "publications", "research");
+        alias("languages", "languages");
+        alias("interests", "interests", "hobbies");
+        alias("volunteer", "volunteer", "volunteering", "volunteer experience");
+    }
+
+    private ResumeSections() {
+    }
+
+    private static void alias(String canonical, String... headings) {
+        for (String heading : headings) {
+            HEADING_ALIASES.put(heading, canonical);
+        }
+    }
+
+    // Canonical section name -> section body, in document order. A section that appears twice is merged.
+    static Map<String, String> split(String text) {
+        Map<String, StringBuilder> sections = new LinkedHashMap<>();
+        String current = HEADER;
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            String line = text.substring(lineStart, lineEnd);
+            String heading = canonicalHeading(line);
+            if (heading != null) {
+                current = heading;
+                sections.computeIfAbsent(current, k -> new StringBuilder());
+            } else {
+                sections.computeIfAbsent(current, k -> new StringBuilder()).append(line).append('\n');
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, StringBuilder> section : sections.entrySet()) {
+            String body = section.getValue().toString().trim();
+            if (!body.isEmpty() || !HEADER.equals(section.getKey())) {
+                result.put(section.getKey(), body);
+            }
+        }
+        return result;
+    }
+
+    // Returns the canonical section name if the line is a heading on its own, otherwise null
+    static String canonicalHeading(String line) {
+        String candidate = line.trim();
+        if (candidate.isEmpty() || candidate.length() > 40) {
+            return null;
+        }
+        candidate = TRAILING_DECORATION.matcher(LEADING_DECORATION.matcher(candidate).replaceFirst("")).replaceFirst("");
+        return HEADING_ALIASES.get(WHITESPACE.matcher(candidate.toLowerCase(Locale.ROOT).replace("&", " and ")).replaceAll(" "));
+    }
+}
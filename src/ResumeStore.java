@@ -0,0 +1,60 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Owns the text extracted from every uploaded resume so analyze, compare and chat never re-parse a
+// PDF. Each read re-checks the file's mtime and size; if they moved, the file is re-hashed and only
+// re-extracted when its content actually changed. Text is also kept in the persistent result store by
+// content hash, so a resume extracted in an earlier session is never parsed again.
+class ResumeStore {
+
+    interface TextExtractor {
+        String extract(File file) throws IOException;
+    }
+
+    private final TextExtractor extractor;
+    private final ResultStore persistent;
+    private final Map<File, ResumeDocument> documents = new ConcurrentHashMap<>();
+
+    ResumeStore(TextExtractor extractor, ResultStore persistent) {
+        this.extractor = extractor;
+        this.persistent = persistent;
+    }
+
+    ResumeDocument get(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        ResumeDocument current = documents.get(key);
+        long lastModified = key.lastModified();
+        long length = key.length();
+        if (current != null && current.getLastModified() == lastModified && current.getLength() == length) {
+            return current;
+        }
+
+        String contentHash = Hashes.sha256Hex(Files.readAllBytes(key.toPath()));
+        ResumeDocument refreshed;
+        if (current != null && current.getContentHash().equals(contentHash)) {
+            refreshed = current.withFileMetadata(lastModified, length);
+        } else {
+            refreshed = new ResumeDocument(key, text(key, contentHash), contentHash, lastModified, length);
+        }
+        documents.put(key, refreshed);
+        return refreshed;
+    }
+
+    // Extracts the file, whose content hash the caller has computed, without keeping the document in memory
+    ResumeDocument read(File file, String contentHash) throws IOException {
+        File key = file.getAbsoluteFile();
+        return new ResumeDocument(key, text(key, contentHash), contentHash, key.lastModified(), key.length());
+    }
+
+    private String text(File file, String contentHash) throws IOException {
+        String text = persistent.text(contentHash);
+        if (text == null) {
+            text = extractor.extract(file);
+            persistent.putText(contentHash, text);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Hashed TF-IDF vectors for job-description matching, computed locally with no network calls.
+// Every resume becomes a fixed-width row of log term frequencies (feature hashing with a sign bit
+// to cancel collisions), L2-normalised and packed into one flat float array. A job description is
+// weighted by IDF over the pool and scored against every row; the top K are kept in bounded heaps,
+// one per parallel chunk, and merged.
+class ResumeVectorStore {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "our", "the", "to", "we", "will", "with", "you", "your", "this", "that", "have", "has", "who"));
+    private static final int CHUNK_ROWS = 4096;
+
+    private final int dimensions;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private float[] vectors;
+    private final int[] documentFrequency;
+    private final List<File> files = new ArrayList<>();
+    private final Map<File, Integer> rows = new HashMap<>();
+
+    ResumeVectorStore(int dimensions) {
+        this.dimensions = dimensions;
+        this.vectors = new float[dimensions * 64];
+        this.documentFrequency = new int[dimensions];
+    }
+
+    // resume.vector.dimensions (default 1024)
+    static ResumeVectorStore fromSystemProperties() {
+        return new ResumeVectorStore(Integer.getInteger("resume.vector.dimensions", 1024));
+    }
+
+    // Adds the resume, or replaces its vector in place when it has been seen before
+    void put(File file, String text) {
+        put(file, text, true);
+    }
+
+    // Adds the resume unless it is already here, so restoring stored text can't overwrite newer text
+    void putIfAbsent(File file, String text) {
+        put(file, text, false);
+    }
+
+    private void put(File file, String text, boolean replace) {
+        float[] vector = termFrequencies(text);
+        normalize(vector);
+        File key = file.getAbsoluteFile();
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(key);
+            if (row != null && !replace) {
+                return;
+            }
+            if (row == null) {
+                row = files.size();
+                files.add(key);
+                rows.put(key, row);
+                if ((row + 1) * dimensions > vectors.length) {
+                    vectors = Arrays.copyOf(vectors, Math.max(vectors.length * 2, (row + 1) * dimensions));
+                }
+            } else {
+                updateDocumentFrequency(row, -1);
+            }
+            System.arraycopy(vector, 0, vectors, row * dimensions, dimensions);
+            updateDocumentFrequency(row, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return files.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The k resumes most similar to the job description, best first
+    List<Match> topMatches(String jobDescription, int k) {
+        lock.readLock().lock();
+        try {
+            int rowCount = files.size();
+            if (rowCount == 0 || k <= 0) {
+                return new ArrayList<>();
+            }
+            float[] query = termFrequencies(jobDescription);
+            for (int i = 0; i < dimensions; i++) {
+                // Query terms are weighted by idf squared since resume rows carry no idf of their own
+                double idf = Math.log((1.0 + rowCount) / (1.0 + documentFrequency[i])) + 1.0;
+                query[i] *= (float) (idf * idf);
+            }
+            normalize(query);
+
+            float[] rowsSnapshot = vectors;
+            int chunks = (rowCount + CHUNK_ROWS - 1) / CHUNK_ROWS;
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> topInChunk(rowsSnapshot, query, chunk * CHUNK_ROWS, Math.min(rowCount, (chunk + 1) * CHUNK_ROWS), k))
+                    .flatMap(List::stream)
+                    .sorted(Comparator.comparingDouble((Match match) -> match.score).reversed().thenComparingInt(match -> match.row))
+                    .limit(k)
+                    .map(match -> new Match(files.get(match.row), match.row, match.score))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Match> topInChunk(float[] rowsSnapshot, float[] query, int fromRow, int toRow, int k) {
+        // Min-heap of the best k seen so far; the root is the weakest and is evicted first
+        PriorityQueue<Match> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble((Match match) -> match.score));
+        for (int row = fromRow; row < toRow; row++) {
+            int offset = row * dimensions;
+            float score = 0;
+            for (int i = 0; i < dimensions; i++) {
+                score += rowsSnapshot[offset + i] * query[i];
+            }
+            if (best.size() < k) {
+                best.add(new Match(null, row, score));
+            } else if (score > best.peek().score) {
+                best.poll();
+                best.add(new Match(null, row, score));
+            }
+        }
+        return new ArrayList<>(best);
+    }
+
+    private void updateDocumentFrequency(int row, int delta) {
+        int offset = row * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            if (vectors[offset + i] != 0) {
+                documentFrequency[i] += delta;
+            }
+        }
+    }
+
+    private float[] termFrequencies(String text) {
+        float[] vector = new float[dimensions];
+        for (String token : ResumeIndex.tokenize(text)) {
+            if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            int hash = mix(token.hashCode());
+            int bucket = Math.floorMod(hash, dimensions);
+            vector[bucket] += (hash & 0x40000000) == 0 ? 1 : -1;
+        }
+        for (int i = 0; i < dimensions; i++) {
+            float count = vector[i];
+            vector[i] = count == 0 ? 0 : (float) Math.copySign(1 + Math.log(Math.abs(count)), count);
+        }
+        return vector;
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    // String.hashCode clusters for short tokens; spread the bits before taking a bucket
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    static final class Match {
+        final File file;
+        final int row;
+        final float score;
+
+        Match(File file, int row, float score) {
+            this.file = file;
+            this.row = row;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Request coalescing: while a call for a key is in flight, every other caller asking for the same key
+// waits on the first caller's future instead of issuing its own request. If the first caller is
+// interrupted or cancelled, that is its own business: the waiters start over and one of them makes
+// the call instead.
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    V execute(K key, Callable<V> call) throws Exception {
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+            if (existing == null) {
+                return lead(key, mine, call);
+            }
+            coalesced.incrementAndGet();
+            try {
+                return await(existing);
+            } catch (CancellationException leaderGaveUp) {
+                // Retried as a fresh call, which may now lead
+            }
+        }
+    }
+
+    // Removed from the map before completion, so a waiter that starts over never finds the same future
+    private V lead(K key, CompletableFuture<V> mine, Callable<V> call) throws Exception {
+        V value;
+        try {
+            value = call.call();
+        } catch (Exception | Error e) {
+            inFlight.remove(key, mine);
+            if (RequestScheduler.isCancellation(e)) {
+                mine.cancel(false);
+            } else {
+                mine.completeExceptionally(e);
+            }
+            throw e;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    // Callers that joined an in-flight call instead of making their own
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    // The waiter's own interrupt ends the wait with InterruptedException
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
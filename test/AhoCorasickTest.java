@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class AhoCorasickTest {
+
+    @Test
+    void matchesOnlyWholeWords() {
+        AhoCorasick matcher = new AhoCorasick(List.of("java", "go", "rest"));
+        assertArrayEquals(new int[]{1, 0, 0}, matcher.countMatches("JavaScript, Java, golang, Google, restful, interest"));
+    }
+
+    @Test
+    void plusAndHashBelongToTheWord() {
+        AhoCorasick matcher = new AhoCorasick(List.of("c", "c++", "c#"));
+        assertArrayEquals(new int[]{1, 2, 1}, matcher.countMatches("C++ and C# and C, then c++."));
+    }
+
+    @Test
+    void punctuationAndTextEdgesAreBoundaries() {
+        AhoCorasick matcher = new AhoCorasick(List.of("sql", "node.js"));
+        assertArrayEquals(new int[]{3, 2}, matcher.countMatches("sql/(SQL)-sql; node.js, Node.js"));
+    }
+
+    @Test
+    void hyphensMatchSpaces() {
+        AhoCorasick matcher = new AhoCorasick(List.of("problem solving", "e-commerce", "led"));
+        assertArrayEquals(new int[]{2, 2, 1}, matcher.countMatches("Problem-solving, problem solving, e-commerce, E commerce, co-led"));
+    }
+
+    @Test
+    void reportsOverlappingAndNestedPatterns() {
+        AhoCorasick matcher = new AhoCorasick(List.of("machine learning", "learning", "machine", "deep learning"));
+        assertArrayEquals(new int[]{1, 2, 1, 1}, matcher.countMatches("Machine learning and deep learning"));
+    }
+
+    @Test
+    void patternsSharingAPrefixAreCountedSeparately() {
+        AhoCorasick matcher = new AhoCorasick(List.of("data", "data analysis", "database"));
+        assertArrayEquals(new int[]{2, 1, 1}, matcher.countMatches("data analysis of a database and its data"));
+    }
+
+    // After a partial match fails the failure links must still find a pattern starting inside it
+    @Test
+    void followsFailureLinksAfterAPartialMatch() {
+        AhoCorasick matcher = new AhoCorasick(List.of("time management", "management"));
+        assertArrayEquals(new int[]{0, 1}, matcher.countMatches("time manager; overtime management"));
+        assertArrayEquals(new int[]{1, 1}, matcher.countMatches("time time management"));
+    }
+
+    @Test
+    void emptyTextAndNoPatterns() {
+        assertArrayEquals(new int[]{0}, new AhoCorasick(List.of("java")).countMatches(""));
+        assertArrayEquals(new int[0], new AhoCorasick(List.of()).countMatches("java"));
+    }
+}
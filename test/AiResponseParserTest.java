@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiResponseParserTest {
+
+    @Test
+    void readsEveryHeaderOfTheRequestedFormat() {
+        AiResponseParser.Result result = AiResponseParser.parse("ATS COMPATIBILITY SCORE: 78\n"
+                + "ATS COMPATIBILITY DETAILS: Clean layout.\n"
+                + "FORMAT: Single column.\n"
+                + "SECTIONS: Certifications are missing.\n"
+                + "SKILLS: Java, SQL\n"
+                + "STYLE: Concise.\n"
+                + "ATS Keyword Matches: Technical Skills - present");
+
+        assertEquals(78, result.getAtsScore());
+        assertEquals("Clean layout.", result.get(AiResponseParser.Field.ATS_DETAILS));
+        assertEquals("Single column.", result.get(AiResponseParser.Field.FORMAT));
+        assertEquals("Java, SQL", result.get(AiResponseParser.Field.SKILLS));
+        assertEquals("Technical Skills - present", result.get(AiResponseParser.Field.KEYWORD_MATCHES));
+    }
+
+    @Test
+    void bulletedHeaderLikeLinesStayInTheirSection() {
+        AiResponseParser.Result result = AiResponseParser.parse("ATS Score: 64\n"
+                + "SKILLS: Python, Spark\n"
+                + "ATS Keyword Matches:\n"
+                + "- Skills: present\n"
+                + "* Format: partial\n"
+                + "• Sections - missing\n"
+                + "  - Style: present");
+
+        assertEquals("Python, Spark", result.get(AiResponseParser.Field.SKILLS));
+        assertEquals("- Skills: present\n* Format: partial\n• Sections - missing\n  - Style: present",
+                result.get(AiResponseParser.Field.KEYWORD_MATCHES));
+        assertFalse(result.has(AiResponseParser.Field.FORMAT));
+        assertFalse(result.has(AiResponseParser.Field.SECTIONS));
+        assertFalse(result.has(AiResponseParser.Field.STYLE));
+    }
+
+    @Test
+    void toleratesMarkdownAndNumbering() {
+        AiResponseParser.Result result = AiResponseParser.parse("## ATS Score\n"
+                + "82/100\n"
+                + "1. **Format:** Two columns.\n"
+                + "**2. Skills** - Java\n"
+                + "3) _Style_: Formal.\n"
+                + "> Interview Probability: 55%");
+
+        assertEquals(82, result.getAtsScore());
+        assertEquals("Two columns.", result.get(AiResponseParser.Field.FORMAT));
+        assertEquals("Java", result.get(AiResponseParser.Field.SKILLS));
+        assertEquals("Formal.", result.get(AiResponseParser.Field.STYLE));
+        assertEquals(55, result.getInterviewProbability());
+    }
+
+    @Test
+    void firstOccurrenceOfAHeaderWins() {
+        AiResponseParser.Result result = AiResponseParser.parse("Skills: Java\nFormat: ok\nSkills: Go");
+        assertEquals("Java", result.get(AiResponseParser.Field.SKILLS));
+    }
+
+    @Test
+    void scoreFallsBackToLooseMatchesWithoutAHeader() {
+        AiResponseParser.Result result = AiResponseParser.parse("This resume scores 71 out of 100 overall. "
+                + "The probability of an interview is about 40%.");
+        assertEquals(71, result.getAtsScore());
+        assertEquals(40, result.getInterviewProbability());
+    }
+
+    @Test
+    void ignoresTheScaleOfAScore() {
+        assertEquals(90, AiResponseParser.parse("ATS Score: [score out of 100] 90").getAtsScore());
+        assertEquals(100, AiResponseParser.parse("ATS Score: 140").getAtsScore());
+        assertTrue(AiResponseParser.parse("ATS Score: 45/100").hasAtsScore());
+        assertFalse(AiResponseParser.parse("No score here").hasAtsScore());
+    }
+}
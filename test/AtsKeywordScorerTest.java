@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AtsKeywordScorerTest {
+
+    private static final AtsKeywordScorer SCORER = new AtsKeywordScorer(AtsKeywordScorer.defaultDictionary());
+
+    @Test
+    void groupsMatchedTermsByCategory() {
+        AtsKeywordScorer.Result result = SCORER.score("Led a team building microservices in Java and SQL. "
+                + "Strong communication and problem-solving. Bachelor degree.");
+        assertEquals(List.of("java", "sql", "microservices"), result.matchedKeywords.get("Technical Skills"));
+        assertEquals(List.of("communication", "problem solving"), result.matchedKeywords.get("Soft Skills"));
+        assertEquals(List.of("led"), result.matchedKeywords.get("Action Verbs"));
+        assertEquals(List.of("bachelor", "degree"), result.matchedKeywords.get("Credentials"));
+    }
+
+    @Test
+    void wordBoundariesPreventFalsePositives() {
+        AtsKeywordScorer.Result result = SCORER.score("JavaScript developer at Google, golang enthusiast, misled nobody");
+        assertEquals(List.of("javascript"), result.matchedKeywords.get("Technical Skills"));
+        assertEquals(List.of(), result.matchedKeywords.get("Action Verbs"));
+    }
+
+    @Test
+    void overlappingTermsAreAllCredited() {
+        AtsKeywordScorer.Result result = SCORER.score("Applied machine learning and data analysis in Power BI");
+        assertEquals(List.of("machine learning", "data analysis", "power bi"), result.matchedKeywords.get("Technical Skills"));
+    }
+
+    @Test
+    void repeatedTermsCountOnce() {
+        AtsKeywordScorer.Result once = SCORER.score("Java");
+        AtsKeywordScorer.Result repeated = SCORER.score("Java java JAVA");
+        assertEquals(List.of("java"), repeated.matchedKeywords.get("Technical Skills"));
+        assertEquals(once.score, repeated.score);
+    }
+
+    @Test
+    void hyphenatedAndSpacedSpellingsAreOneMatch() {
+        AtsKeywordScorer.Result hyphenated = SCORER.score("Problem-solving");
+        AtsKeywordScorer.Result both = SCORER.score("Problem-solving and problem solving");
+        assertEquals(List.of("problem solving"), hyphenated.matchedKeywords.get("Soft Skills"));
+        assertEquals(List.of("problem solving"), both.matchedKeywords.get("Soft Skills"));
+        assertEquals(hyphenated.score, both.score);
+    }
+
+    @Test
+    void sectionsAndContactDetailsAddPoints() {
+        String body = "Built Java services, reduced latency by 40%.";
+        AtsKeywordScorer.Result bare = SCORER.score(body);
+        AtsKeywordScorer.Result complete = SCORER.score("jane@example.com | +1 555 010 1234\n"
+                + "EXPERIENCE\n" + body + "\nEDUCATION\nBachelor of Science\nSKILLS\nJava, SQL\n");
+        assertTrue(complete.hasEmail);
+        assertTrue(complete.hasPhone);
+        assertTrue(complete.hasQuantifiedAchievements);
+        assertFalse(bare.hasEmail);
+        assertTrue(complete.sections.containsAll(List.of("experience", "education", "skills")));
+        assertTrue(complete.score > bare.score);
+    }
+
+    @Test
+    void loadsDictionaryFiles(@TempDir File dir) throws IOException {
+        File file = new File(dir, "dictionary.txt");
+        Files.write(file.toPath(), List.of("# roles", "Cloud: aws, gcp , , azure", "", "no colon here", "Cloud: terraform",
+                "Data: spark"), StandardCharsets.UTF_8);
+
+        Map<String, List<String>> expected = new LinkedHashMap<>();
+        expected.put("Cloud", List.of("aws", "gcp", "azure", "terraform"));
+        expected.put("Data", List.of("spark"));
+        assertEquals(expected, AtsKeywordScorer.loadDictionary(file));
+
+        AtsKeywordScorer.Result result = new AtsKeywordScorer(expected).score("Terraform on AWS with Spark");
+        assertEquals(List.of("aws", "terraform"), result.matchedKeywords.get("Cloud"));
+        assertEquals(List.of("spark"), result.matchedKeywords.get("Data"));
+    }
+}
@@ -0,0 +1,231 @@
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CohereClientTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    // Serves handler on both endpoints and returns a client pointed at it
+    private CohereClient serve(HttpHandler handler) throws IOException {
+        return serve(handler, Duration.ofSeconds(5));
+    }
+
+    private CohereClient serve(HttpHandler handler, Duration requestTimeout) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext(CohereClient.GENERATE_PATH, handler);
+        server.createContext(CohereClient.CHAT_PATH, handler);
+        server.start();
+        return new CohereClient("test-key", "http://localhost:" + server.getAddress().getPort(), Duration.ofSeconds(2), requestTimeout);
+    }
+
+    private static HttpHandler respond(String body) {
+        return respond(200, null, body);
+    }
+
+    private static HttpHandler respond(int status, String retryAfter, String body) {
+        return exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getRequestBody().readAllBytes();
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter);
+            }
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        };
+    }
+
+    @Test
+    void streamsNewlineDelimitedEventsUntilFinished() throws Exception {
+        CohereClient client = serve(respond(
+                "{\"text\":\"Hello\",\"is_finished\":false}\n"
+                        + "{\"text\":\", world\",\"is_finished\":false}\n"
+                        + "{\"is_finished\":true,\"text\":\"ignored\"}\n"));
+        List<String> fragments = new ArrayList<>();
+        String text = client.streamGenerate(new JSONObject().put("prompt", "hi"), fragments::add);
+        assertEquals("Hello, world", text);
+        assertEquals(List.of("Hello", ", world"), fragments);
+    }
+
+    @Test
+    void streamsSseDataLines() throws Exception {
+        CohereClient client = serve(respond(
+                ": keep-alive\n"
+                        + "data: {\"text\":\"one \"}\n\n"
+                        + "data:{\"text\":\"two\"}\n\n"
+                        + "data: [DONE]\n"));
+        assertEquals("one two", client.streamGenerate(new JSONObject(), text -> { }));
+    }
+
+    @Test
+    void chatStreamKeepsOnlyTextGenerationEvents() throws Exception {
+        CohereClient client = serve(respond(
+                "{\"event_type\":\"stream-start\",\"generation_id\":\"x\"}\n"
+                        + "{\"event_type\":\"text-generation\",\"text\":\"Strong \"}\n"
+                        + "{\"event_type\":\"search-results\",\"text\":\"not for the user\"}\n"
+                        + "{\"event_type\":\"text-generation\",\"text\":\"resume.\"}\n"
+                        + "{\"event_type\":\"stream-end\",\"is_finished\":true}\n"));
+        assertEquals("Strong resume.", client.streamChat(new JSONObject().put("message", "hi"), text -> { }));
+    }
+
+    @Test
+    void streamAsksTheServerToStream() throws Exception {
+        List<JSONObject> received = new ArrayList<>();
+        CohereClient client = serve(exchange -> {
+            received.add(new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        client.streamGenerate(new JSONObject().put("prompt", "hi"), text -> { });
+        assertTrue(received.get(0).getBoolean("stream"));
+    }
+
+    @Test
+    void malformedEventIsAnIOException() throws Exception {
+        CohereClient client = serve(respond("{\"text\":\"fine\"}\n{\"text\": broken\n"));
+        IOException thrown = assertThrows(IOException.class, () -> client.streamGenerate(new JSONObject(), text -> { }));
+        assertTrue(thrown.getMessage().startsWith("Malformed stream event"));
+    }
+
+    @Test
+    void interruptingTheReaderClosesAStalledStream() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CohereClient client = serve(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("{\"text\":\"partial\"}\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        CountDownLatch gotFragment = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                client.streamGenerate(new JSONObject(), text -> gotFragment.countDown());
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        assertTrue(gotFragment.await(5, TimeUnit.SECONDS));
+        reader.interrupt();
+        reader.join(5000);
+        assertFalse(reader.isAlive(), "reader still blocked on the stalled stream");
+        assertTrue(failure.get() instanceof InterruptedException || failure.get() instanceof InterruptedIOException
+                || failure.get() instanceof ClosedByInterruptException, String.valueOf(failure.get()));
+        release.countDown();
+    }
+
+    @Test
+    void postReturnsTheBodyAndCountsItsBytes() throws Exception {
+        String body = "{\"generations\":[{\"text\":\"caf\u00e9 na\u00efve\"}]}";
+        CohereClient client = serve(respond(body));
+        long before = Metrics.counter("bytes.received").sum();
+        assertEquals(body, client.generate(new JSONObject().put("prompt", "hi")));
+        assertEquals(body.getBytes(StandardCharsets.UTF_8).length, Metrics.counter("bytes.received").sum() - before);
+    }
+
+    @Test
+    void errorStatusBecomesApiException() throws Exception {
+        CohereClient client = serve(respond(400, null, "{\"message\":\"invalid prompt\"}"));
+        CohereClient.ApiException thrown = assertThrows(CohereClient.ApiException.class, () -> client.generate(new JSONObject()));
+        assertEquals(400, thrown.getStatusCode());
+        assertEquals(0, thrown.getRetryAfterMillis());
+        assertTrue(thrown.getMessage().contains("invalid prompt"), thrown.getMessage());
+    }
+
+    @Test
+    void streamErrorStatusBecomesApiException() throws Exception {
+        CohereClient client = serve(respond(503, null, "overloaded"));
+        CohereClient.ApiException thrown = assertThrows(CohereClient.ApiException.class,
+                () -> client.streamChat(new JSONObject(), text -> { }));
+        assertEquals(503, thrown.getStatusCode());
+    }
+
+    @Test
+    void retryAfterInSeconds() throws Exception {
+        CohereClient client = serve(respond(429, "2", "slow down"));
+        CohereClient.ApiException thrown = assertThrows(CohereClient.ApiException.class, () -> client.chat(new JSONObject()));
+        assertEquals(429, thrown.getStatusCode());
+        assertEquals(2000, thrown.getRetryAfterMillis());
+    }
+
+    @Test
+    void retryAfterAsHttpDate() throws Exception {
+        String in30Seconds = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+        CohereClient client = serve(respond(503, in30Seconds, ""));
+        long retryAfter = assertThrows(CohereClient.ApiException.class, () -> client.generate(new JSONObject())).getRetryAfterMillis();
+        // The date has one-second resolution
+        assertTrue(retryAfter > 28_000 && retryAfter <= 30_000, String.valueOf(retryAfter));
+    }
+
+    @Test
+    void retryAfterInThePastOrUnparseableMeansNoHint() throws Exception {
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+        CohereClient client = serve(respond(503, past, ""));
+        assertEquals(0, assertThrows(CohereClient.ApiException.class, () -> client.generate(new JSONObject())).getRetryAfterMillis());
+        server.stop(0);
+        CohereClient garbled = serve(respond(503, "soon", ""));
+        assertEquals(0, assertThrows(CohereClient.ApiException.class, () -> garbled.generate(new JSONObject())).getRetryAfterMillis());
+    }
+
+    @Test
+    void slowResponseTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CohereClient client = serve(exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        }, Duration.ofMillis(200));
+        try {
+            assertThrows(HttpTimeoutException.class, () -> client.generate(new JSONObject()));
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestSchedulerTest {
+
+    private static final RequestScheduler.Priority BATCH = RequestScheduler.Priority.BATCH;
+
+    // No rate limits, so only retries, backoff and the breaker are exercised
+    private static RequestScheduler scheduler(int maxRetries, long baseBackoffMillis, long maxBackoffMillis, int failureThreshold, long openMillis) {
+        return new RequestScheduler(1_000_000, 1_000_000_000, maxRetries, baseBackoffMillis, maxBackoffMillis, failureThreshold, openMillis);
+    }
+
+    private static CohereClient.ApiException status(int code) {
+        return new CohereClient.ApiException(code, "", 0);
+    }
+
+    private static String fail(Exception e) throws Exception {
+        throw e;
+    }
+
+    @Test
+    void retriesServerErrorsUntilSuccess() throws Exception {
+        RequestScheduler scheduler = scheduler(3, 1, 10, 100, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        String result = scheduler.execute(BATCH, 10, () -> calls.incrementAndGet() < 3 ? fail(status(503)) : "ok");
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, scheduler.getRetryCount());
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        RequestScheduler scheduler = scheduler(3, 1, 10, 100, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        CohereClient.ApiException thrown = assertThrows(CohereClient.ApiException.class,
+                () -> scheduler.execute(BATCH, 10, () -> {
+                    calls.incrementAndGet();
+                    return fail(status(400));
+                }));
+        assertEquals(400, thrown.getStatusCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() {
+        RequestScheduler scheduler = scheduler(2, 1, 10, 100, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(ConnectException.class, () -> scheduler.execute(BATCH, 10, () -> {
+            calls.incrementAndGet();
+            return fail(new ConnectException("refused"));
+        }));
+        assertEquals(3, calls.get());
+    }
+
+    // Attempt n sleeps between half and all of base * 2^n
+    @Test
+    void backoffGrowsExponentially() throws Exception {
+        RequestScheduler scheduler = scheduler(2, 40, 10_000, 100, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        long started = System.nanoTime();
+        scheduler.execute(BATCH, 10, () -> calls.incrementAndGet() < 3 ? fail(status(503)) : "ok");
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(millis >= 20 + 40, "slept " + millis + " ms");
+    }
+
+    @Test
+    void backoffIsCappedAtTheMaximum() throws Exception {
+        RequestScheduler scheduler = scheduler(4, 10_000, 20, 100, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        long started = System.nanoTime();
+        scheduler.execute(BATCH, 10, () -> calls.incrementAndGet() < 5 ? fail(status(503)) : "ok");
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(millis < 2000, "slept " + millis + " ms");
+    }
+
+    @Test
+    void retryAfterOverridesBackoff() throws Exception {
+        RequestScheduler scheduler = scheduler(1, 1, 10, 100, 1000);
+        AtomicInteger calls = new AtomicInteger();
+        long started = System.nanoTime();
+        scheduler.execute(BATCH, 10, () -> calls.incrementAndGet() == 1 ? fail(new CohereClient.ApiException(429, "", 300)) : "ok");
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(millis >= 300, "slept " + millis + " ms");
+    }
+
+    @Test
+    void rateLimitingDoesNotTripTheBreaker() {
+        RequestScheduler scheduler = scheduler(0, 1, 10, 2, 60_000);
+        for (int i = 0; i < 5; i++) {
+            assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(429))));
+        }
+        assertEquals("CLOSED", scheduler.getCircuitState());
+    }
+
+    @Test
+    void breakerOpensAfterConsecutiveFailuresAndFailsFast() {
+        RequestScheduler scheduler = scheduler(0, 1, 10, 2, 60_000);
+        assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(500))));
+        assertEquals("CLOSED", scheduler.getCircuitState());
+        assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(500))));
+        assertEquals("OPEN", scheduler.getCircuitState());
+
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(RequestScheduler.CircuitOpenException.class, () -> scheduler.execute(BATCH, 10, calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertEquals(1, scheduler.getCircuitRejections());
+    }
+
+    @Test
+    void successfulProbeClosesTheBreaker() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        assertEquals("ok", scheduler.execute(BATCH, 10, () -> "ok"));
+        assertEquals("CLOSED", scheduler.getCircuitState());
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(502))));
+        assertEquals("OPEN", scheduler.getCircuitState());
+        assertThrows(RequestScheduler.CircuitOpenException.class, () -> scheduler.execute(BATCH, 10, () -> "ok"));
+    }
+
+    @Test
+    void probeAnsweredWithClientErrorClosesTheBreaker() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(400))));
+        assertEquals("CLOSED", scheduler.getCircuitState());
+        assertEquals("ok", scheduler.execute(BATCH, 10, () -> "ok"));
+    }
+
+    @Test
+    void onlyOneProbeAtATime() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        CountDownLatch probing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> probe = executor.submit(() -> scheduler.execute(BATCH, 10, () -> {
+                probing.countDown();
+                release.await();
+                return "ok";
+            }));
+            probing.await();
+            assertEquals("HALF_OPEN", scheduler.getCircuitState());
+            assertThrows(RequestScheduler.CircuitOpenException.class, () -> scheduler.execute(BATCH, 10, () -> "second"));
+            release.countDown();
+            assertEquals("ok", probe.get());
+            assertEquals("CLOSED", scheduler.getCircuitState());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void interruptedProbeLeavesTheBreakerHalfOpenForTheNextCall() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        CountDownLatch probing = new CountDownLatch(1);
+        Thread probe = new Thread(() -> {
+            try {
+                scheduler.execute(BATCH, 10, () -> {
+                    probing.countDown();
+                    Thread.sleep(60_000);
+                    return "never";
+                });
+            } catch (Exception ignored) {
+            }
+        });
+        probe.start();
+        probing.await();
+        probe.interrupt();
+        probe.join(5000);
+
+        assertEquals("HALF_OPEN", scheduler.getCircuitState());
+        assertEquals("ok", scheduler.execute(BATCH, 10, () -> "ok"));
+        assertEquals("CLOSED", scheduler.getCircuitState());
+    }
+
+    @Test
+    void interruptedProbeDoesNotCloseTheBreaker() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        assertThrows(InterruptedException.class, () -> scheduler.execute(BATCH, 10, () -> {
+            throw new InterruptedException();
+        }));
+        assertEquals("HALF_OPEN", scheduler.getCircuitState());
+        assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(503))));
+        assertEquals("OPEN", scheduler.getCircuitState());
+    }
+
+    @Test
+    void probeThrowingAnErrorFreesTheTrial() throws Exception {
+        RequestScheduler scheduler = openBreaker();
+        assertThrows(StackOverflowError.class, () -> scheduler.execute(BATCH, 10, () -> {
+            throw new StackOverflowError();
+        }));
+        assertEquals("HALF_OPEN", scheduler.getCircuitState());
+        assertEquals("ok", scheduler.execute(BATCH, 10, () -> "ok"));
+        assertEquals("CLOSED", scheduler.getCircuitState());
+    }
+
+    // Opened by one failure and ready for a probe 50 ms later
+    private static RequestScheduler openBreaker() throws InterruptedException {
+        RequestScheduler scheduler = scheduler(0, 1, 10, 1, 50);
+        assertThrows(CohereClient.ApiException.class, () -> scheduler.execute(BATCH, 10, () -> fail(status(503))));
+        assertEquals("OPEN", scheduler.getCircuitState());
+        Thread.sleep(80);
+        return scheduler;
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultStoreTest {
+
+    @TempDir
+    File dir;
+
+    private static String hash(String content) {
+        return Hashes.sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File log() {
+        return new File(dir, "results.log");
+    }
+
+    @Test
+    void recordsSurviveReopening() {
+        ResultStore store = ResultStore.open(dir);
+        store.putText(hash("a"), "resume a");
+        store.putAnalysis(hash("a"), new ResumeAnalysisEngine.Analysis(70, 55, "analysis", "grammar"));
+        store.putAnalysis(hash("a"), new ResumeAnalysisEngine.Analysis(80, 60, "newer", "grammar"));
+        store.close();
+
+        ResultStore reopened = ResultStore.open(dir);
+        assertEquals("resume a", reopened.text(hash("a")));
+        assertEquals(80, reopened.analysis(hash("a")).atsScore);
+        assertNull(reopened.text(hash("b")));
+        reopened.close();
+    }
+
+    @Test
+    void tornRecordIsCutOffOnReopen() throws IOException {
+        ResultStore store = ResultStore.open(dir);
+        store.putText(hash("a"), "resume a");
+        store.putText(hash("b"), "resume b");
+        long complete = log().length();
+        store.putText(hash("c"), "resume c, whose record is torn");
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(log(), "rw")) {
+            raf.setLength(log().length() - 10);
+        }
+
+        ResultStore reopened = ResultStore.open(dir);
+        assertEquals("resume a", reopened.text(hash("a")));
+        assertEquals("resume b", reopened.text(hash("b")));
+        assertNull(reopened.text(hash("c")));
+        assertEquals(complete, log().length());
+
+        // Appends continue from the end of the last complete record
+        reopened.putText(hash("d"), "resume d");
+        reopened.close();
+        ResultStore again = ResultStore.open(dir);
+        assertEquals("resume b", again.text(hash("b")));
+        assertEquals("resume d", again.text(hash("d")));
+        assertEquals(3, again.size());
+        again.close();
+    }
+
+    @Test
+    void tornRecordHeaderIsCutOff() throws IOException {
+        ResultStore store = ResultStore.open(dir);
+        store.putText(hash("a"), "resume a");
+        long complete = log().length();
+        store.putText(hash("b"), "resume b");
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(log(), "rw")) {
+            raf.setLength(complete + 7);
+        }
+
+        ResultStore reopened = ResultStore.open(dir);
+        assertEquals("resume a", reopened.text(hash("a")));
+        assertNull(reopened.text(hash("b")));
+        assertEquals(complete, log().length());
+        reopened.close();
+    }
+
+    @Test
+    void missingIndexIsRebuiltFromTheLog() {
+        ResultStore store = ResultStore.open(dir);
+        for (int i = 0; i < 100; i++) {
+            store.putText(hash("r" + i), "resume " + i);
+        }
+        store.close();
+        assertTrue(new File(dir, "results.idx").delete());
+
+        ResultStore reopened = ResultStore.open(dir);
+        assertEquals(100, reopened.size());
+        assertEquals("resume 42", reopened.text(hash("r42")));
+        reopened.close();
+    }
+
+    @Test
+    void chatTurnsAreAppendedOneAtATime() {
+        ResultStore store = ResultStore.open(dir);
+        String resume = hash("a");
+        store.addChatTurn(resume, new ChatSession.Turn("first", "reply 1"));
+        long oneTurn = log().length();
+        for (int i = 2; i <= 50; i++) {
+            store.addChatTurn(resume, new ChatSession.Turn("message " + i, "reply " + i));
+        }
+        // Linear, not quadratic, in the number of turns
+        assertTrue(log().length() < oneTurn * 50 * 2);
+        store.close();
+
+        ResultStore reopened = ResultStore.open(dir);
+        List<ChatSession.Turn> turns = reopened.chat(resume);
+        assertEquals(50, turns.size());
+        assertEquals("first", turns.get(0).message);
+        assertEquals("reply 50", turns.get(49).reply);
+        assertEquals(List.of(), reopened.chat(hash("b")));
+        reopened.close();
+    }
+
+    @Test
+    void resetStartsANewChat() {
+        ResultStore store = ResultStore.open(dir);
+        String resume = hash("a");
+        store.addChatTurn(resume, new ChatSession.Turn("old", "old reply"));
+        store.resetChat(resume);
+        assertEquals(List.of(), store.chat(resume));
+
+        store.addChatTurn(resume, new ChatSession.Turn("new", "new reply"));
+        List<ChatSession.Turn> turns = store.chat(resume);
+        assertEquals(1, turns.size());
+        assertEquals("new", turns.get(0).message);
+        store.close();
+    }
+}
@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResumeIndexTest {
+
+    @TempDir
+    File dir;
+
+    private final File java = new File("java.pdf").getAbsoluteFile();
+    private final File python = new File("python.pdf").getAbsoluteFile();
+    private final File both = new File("both.pdf").getAbsoluteFile();
+
+    private ResumeIndex sample() {
+        ResumeIndex index = new ResumeIndex();
+        index.update(java, "h1", "Senior Java developer. Built payment services in Java and SQL.", List.of("Java", "SQL"));
+        index.update(python, "h2", "Data engineer using Python and Spark for machine learning pipelines.", List.of("Python"));
+        index.update(both, "h3", "Full stack developer: Java services, Python scripts, machine learning.", List.of("Java", "Python"));
+        return index;
+    }
+
+    @Test
+    void wordsAreAnded() {
+        assertEquals(List.of(both), sample().search("java python"));
+    }
+
+    @Test
+    void orMatchesEitherSide() {
+        assertEquals(List.of(java, python, both), sample().search("sql OR spark OR scripts"));
+    }
+
+    @Test
+    void minusAndNotExclude() {
+        ResumeIndex index = sample();
+        assertEquals(List.of(java), index.search("java -python"));
+        assertEquals(List.of(java), index.search("java NOT python"));
+        assertEquals(List.of(python), index.search("-java"));
+    }
+
+    @Test
+    void phraseNeedsAdjacentWordsInOrder() {
+        ResumeIndex index = sample();
+        assertEquals(List.of(python, both), index.search("\"machine learning\""));
+        assertEquals(List.of(), index.search("\"learning machine\""));
+        assertEquals(List.of(java), index.search("\"payment services\""));
+        assertEquals(List.of(), index.search("\"java payment\""));
+    }
+
+    @Test
+    void skillTermsMatchDetectedSkills() {
+        ResumeIndex index = sample();
+        assertEquals(List.of(java), index.search("skill:sql"));
+        assertEquals(List.of(python, both), index.search("skill:python"));
+    }
+
+    @Test
+    void tokenizerKeepsLanguageNames() {
+        assertEquals(List.of("c++", "c#", "node.js", "end"), ResumeIndex.tokenize("C++, C#, Node.js. End."));
+    }
+
+    // Gaps over 127 and 16383 need two and three varint bytes for doc ids and positions
+    @Test
+    void postingsDecodeMultiByteVarints() {
+        ResumeIndex index = new ResumeIndex();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            File file = new File("r" + i + ".pdf").getAbsoluteFile();
+            files.add(file);
+            index.update(file, "h" + i, i % 150 == 0 ? "rare" : "common", Set.of());
+        }
+        StringBuilder longText = new StringBuilder("start");
+        for (int i = 0; i < 20_000; i++) {
+            longText.append(" filler");
+        }
+        longText.append(" far away");
+        File last = new File("long.pdf").getAbsoluteFile();
+        index.update(last, "long", longText.toString(), Set.of());
+
+        assertEquals(List.of(files.get(0), files.get(150)), index.search("rare"));
+        assertEquals(List.of(last), index.search("\"far away\""));
+        assertEquals(List.of(last), index.search("\"start filler\""));
+        assertEquals(List.of(), index.search("\"start away\""));
+    }
+
+    @Test
+    void reuploadedContentReplacesTheOldDocument() {
+        ResumeIndex index = sample();
+        index.update(java, "h1b", "Go developer", List.of());
+        assertEquals(List.of(both), index.search("java"));
+        assertEquals(List.of(java), index.search("go"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void savesAppendChangesAndReloadThem() throws IOException {
+        File file = new File(dir, "index.bin");
+        ResumeIndex index = sample();
+        index.save(file);
+        long snapshot = file.length();
+
+        index.update(new File("go.pdf"), "h4", "Go and Kubernetes", List.of());
+        index.remove(python);
+        index.save(file);
+        assertTrue(file.length() > snapshot);
+
+        ResumeIndex loaded = ResumeIndex.load(file);
+        assertEquals(3, loaded.size());
+        assertEquals(List.of(new File("go.pdf").getAbsoluteFile()), loaded.search("kubernetes"));
+        assertEquals(List.of(both), loaded.search("spark OR python"));
+    }
+
+    @Test
+    void tombstonesAreCompactedAway() throws IOException {
+        File file = new File(dir, "index.bin");
+        ResumeIndex index = new ResumeIndex();
+        for (int i = 0; i < 100; i++) {
+            index.update(new File("r" + i + ".pdf"), "h" + i, "resume number" + i, List.of());
+        }
+        index.save(file);
+        long full = file.length();
+        for (int i = 0; i < 90; i++) {
+            index.remove(new File("r" + i + ".pdf"));
+        }
+        index.save(file);
+
+        assertTrue(file.length() < full / 2, "rewritten without removed documents");
+        ResumeIndex loaded = ResumeIndex.load(file);
+        assertEquals(10, loaded.size());
+        assertEquals(10, loaded.search("resume").size());
+        assertEquals(List.of(), loaded.search("number5"));
+        assertEquals(1, loaded.search("number95").size());
+    }
+
+    @Test
+    void tornLogTailIsDropped() throws IOException {
+        File file = new File(dir, "index.bin");
+        ResumeIndex index = sample();
+        index.save(file);
+        index.update(new File("go.pdf"), "h4", "Go and Kubernetes", List.of());
+        index.save(file);
+        long complete = file.length();
+        index.update(new File("rust.pdf"), "h5", "Rust systems programmer", List.of());
+        index.save(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        ResumeIndex loaded = ResumeIndex.load(file);
+        assertEquals(4, loaded.size());
+        assertEquals(1, loaded.search("kubernetes").size());
+        assertEquals(0, loaded.search("rust").size());
+
+        // The next save rewrites the file, so a later record isn't appended after the torn one
+        loaded.update(new File("scala.pdf"), "h6", "Scala developer", List.of());
+        loaded.save(file);
+        assertTrue(file.length() >= complete);
+        ResumeIndex reloaded = ResumeIndex.load(file);
+        assertEquals(5, reloaded.size());
+        assertEquals(1, reloaded.search("scala").size());
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopThreads() {
+        executor.shutdownNow();
+    }
+
+    // Starts a leader for key that blocks until release, and returns once it is running
+    private Future<String> leader(CountDownLatch release, Outcome outcome) throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> future = executor.submit(() -> flight.execute("key", () -> {
+            running.countDown();
+            release.await();
+            return outcome.call();
+        }));
+        running.await();
+        return future;
+    }
+
+    private interface Outcome {
+        String call() throws Exception;
+    }
+
+    // Waits until the waiter has joined the leader's call
+    private Future<String> waiter(Outcome ownCall, long joinedBefore) throws InterruptedException {
+        Future<String> future = executor.submit(() -> flight.execute("key", ownCall::call));
+        while (flight.getCoalescedCount() == joinedBefore) {
+            Thread.sleep(1);
+        }
+        return future;
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ownCalls = new AtomicInteger();
+        Future<String> leader = leader(release, () -> "shared");
+        Future<String> first = waiter(() -> "own " + ownCalls.incrementAndGet(), 0);
+        Future<String> second = waiter(() -> "own " + ownCalls.incrementAndGet(), 1);
+        release.countDown();
+
+        assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("shared", first.get(5, TimeUnit.SECONDS));
+        assertEquals("shared", second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, ownCalls.get());
+        assertEquals(2, flight.getCoalescedCount());
+    }
+
+    @Test
+    void leaderFailureIsShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = leader(release, () -> {
+            throw new IOException("boom");
+        });
+        Future<String> waiter = waiter(() -> "own", 0);
+        release.countDown();
+
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @Test
+    void leaderErrorReachesWaitersInsteadOfHangingThem() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = leader(release, () -> {
+            throw new AssertionError("broken");
+        });
+        Future<String> waiter = waiter(() -> "own", 0);
+        release.countDown();
+
+        assertInstanceOf(AssertionError.class, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(AssertionError.class, assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @Test
+    void interruptedLeaderHandsTheCallToAWaiter() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        Future<String> leader = leader(never, () -> "unreachable");
+        Future<String> waiter = waiter(() -> "own call", 0);
+        leader.cancel(true);
+
+        assertEquals("own call", waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waiterCanBeInterruptedWhileTheLeaderRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = leader(release, () -> "shared");
+        AtomicInteger outcome = new AtomicInteger();
+        Thread waiter = new Thread(() -> {
+            try {
+                flight.execute("key", () -> "own");
+            } catch (InterruptedException e) {
+                outcome.set(1);
+            } catch (Exception e) {
+                outcome.set(2);
+            }
+        });
+        waiter.start();
+        while (flight.getCoalescedCount() == 0) {
+            Thread.sleep(1);
+        }
+        waiter.interrupt();
+        waiter.join(5000);
+
+        assertEquals(1, outcome.get());
+        release.countDown();
+        assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+    }
+}